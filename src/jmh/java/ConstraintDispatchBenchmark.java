@@ -0,0 +1,76 @@
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+This benchmark measures the lookup of the constraints of a called method in a ConstraintDispatch,
+for synthetic registries of 10, 1k and 100k constraints. The lookup should not get slower as the registry grows.
+Half of the looked up names have constraints, the other half are misses, as most calls in real code are
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintDispatchBenchmark {
+
+    // one constraint of each kind of check in turn
+    private static final String[] CHECKS = {"follow", "precede", "within try-catch", "char in String", "int<length(String)"};
+
+    // names looked up, a power of two so that the next one is picked with a mask
+    private static final int NAMES = 1 << 12;
+
+    @Param({"10", "1000", "100000"})
+    public int constraints;
+
+    private ConstraintDispatch dispatch;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        JSONArray nodes = new JSONArray();
+        for (int i = 0; i < constraints; i++) {
+            JSONObject constraint = new JSONObject();
+            constraint.put("check", CHECKS[i % CHECKS.length]);
+            constraint.put("Violation", "java.lang.IllegalStateException");
+            constraint.put("Desc", "synthetic constraint " + i);
+            JSONObject node = new JSONObject();
+            node.put("start", "method" + i);
+            node.put("end", "method" + (i + 1));
+            node.put("constraint", constraint);
+            nodes.add(node);
+        }
+        JSONObject json = new JSONObject();
+        json.put("constraint", nodes);
+        dispatch = ConstraintRegistry.parse(json.toJSONString()).getDispatch();
+
+        Random random = new Random(42);
+        names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            int method = random.nextInt(constraints);
+            names[i] = random.nextBoolean() ? "method" + method : "unknown" + method;
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public ConstraintDispatch.Entry lookup() {
+        return dispatch.lookup(names[next++ & (NAMES - 1)]);
+    }
+}
@@ -0,0 +1,74 @@
+import KGdata.KGNodeIndex;
+import KGdata.KGNodeKind;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.JSONToken;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+This measurement compares the heap retained by a KGNodeIndex of the three KG node files with the heap retained by
+the fastjson JSONObject records of the same files, the way the KG data was held before KGNodeIndex.
+JMH measures time, not retained heap, so this is a plain program run next to the benchmarks: gradle kgFootprint.
+Each structure is loaded on its own and the used heap is read after full collections, run it with a fixed heap
+(e.g. -Xms1g -Xmx1g) so that the collections are comparable
+ */
+
+public class KGNodeIndexFootprint {
+
+    public static void main(String[] args) throws IOException {
+        Path dataDirectory = Paths.get(args.length > 0 ? args[0] : "src/main/java/KGdata");
+
+        long base = usedHeap();
+        KGNodeIndex index = KGNodeIndex.load(dataDirectory);
+        long indexBytes = usedHeap() - base;
+        System.out.println("KGNodeIndex:  " + index.size() + " nodes, " + mb(indexBytes) + " MB retained, "
+                + mb(index.estimateBytes()) + " MB estimated");
+        index = null;
+
+        base = usedHeap();
+        List<List<JSONObject>> json = loadJson(dataDirectory);
+        long jsonBytes = usedHeap() - base;
+        int records = 0;
+        for (List<JSONObject> file : json) {
+            records += file.size();
+        }
+        System.out.println("JSONObject:   " + records + " nodes, " + mb(jsonBytes) + " MB retained");
+        System.out.println("KGNodeIndex / JSONObject: " + Math.round(100.0 * indexBytes / jsonBytes) + "%");
+    }
+
+    // the records of every KG node file, parsed by fastjson
+    private static List<List<JSONObject>> loadJson(Path dataDirectory) throws IOException {
+        List<List<JSONObject>> files = new ArrayList<>();
+        for (KGNodeKind kind : KGNodeKind.values()) {
+            String text = new String(Files.readAllBytes(dataDirectory.resolve(kind.getFileName())), StandardCharsets.UTF_8);
+            // the files are JSON objects written back to back
+            List<JSONObject> records = new ArrayList<>();
+            DefaultJSONParser parser = new DefaultJSONParser(text);
+            while (parser.getLexer().token() != JSONToken.EOF) {
+                records.add(parser.parseObject());
+            }
+            parser.close();
+            files.add(records);
+        }
+        return files;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String mb(long bytes) {
+        return String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -1,16 +1,16 @@
 import com.intellij.codeInspection.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.siyeh.ig.psiutils.ExpressionUtils.isNullLiteral;
 
@@ -19,13 +19,16 @@ public class APIChainInspection extends AbstractBaseJavaLocalInspectionTool {
     private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.APIChainInspection");
     private final CriQuickFix myQuickFix = new CriQuickFix();
 
+    // problems found by the last analysis of each file, replayed while the file is unchanged
+    private static final InspectionResultCache RESULTS = new InspectionResultCache("APIChainInspection", false);
+
+    // the chain state is written to the log at most this often
+    private static final long STATE_LOG_INTERVAL_MILLIS = 60_000;
+    private static final AtomicLong LAST_STATE_LOG = new AtomicLong();
+
     // Defines the text of the quick fix intention
     public static final String QUICK_FIX_NAME = "SDK: " + InspectionsBundle.message("inspection.comparing.references.use.quickfix");
 
-    private HashMap<String, String> ast_info = new HashMap<>();
-    private HashMap<String, String> reference_info = new HashMap<>();
-    private static String fileName;
-
     /**
      * This method is overridden to provide a custom visitor
      * that inspects expressions with relational operators '==' and '!='
@@ -39,13 +42,42 @@ public class APIChainInspection extends AbstractBaseJavaLocalInspectionTool {
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
-        return new JavaElementVisitor() {
+        return RESULTS.buildVisitor(holder, isOnTheFly, this::buildAnalysisVisitor);
+    }
+
+    // the visitor that analyses a whole file, it is only run when the file has no cached problems
+    private PsiElementVisitor buildAnalysisVisitor(final ProblemsHolder holder) {
+        return new InspectionResultCache.AnalysisVisitor() {
+
+            // the chains found so far, written by the cache once it has kept them with the problems
+            private final ArrayList<InspectionResultCache.Report> reports = new ArrayList<>();
+
+            @Override
+            public List<InspectionResultCache.Report> getReports() {
+                return reports;
+            }
 
+            // the def-use index of every method being visited, dropped when the method is complete
+            // calls outside any method share the index of null, which goes away with this visitor at the end of the file
+            private final HashMap<PsiMethod, ChainDefUseIndex> indexes = new HashMap<>();
+
+            private ChainDefUseIndex getIndex(PsiElement psiElement) {
+                return indexes.computeIfAbsent(PsiTreeUtil.getParentOfType(psiElement, PsiMethod.class), k -> new ChainDefUseIndex());
+            }
+
+            // the elements of a method are visited before the method itself
+            @Override
             public void visitMethod(PsiMethod psiMethod) {
                 super.visitMethod(psiMethod);
-                fileName = psiMethod.getContainingFile().getName();
+                indexes.remove(psiMethod);
             }
 
+            // the file is visited last, nothing of it is kept
+            @Override
+            public void visitFile(PsiFile file) {
+                super.visitFile(file);
+                indexes.clear();
+            }
 
             /**
              * Evaluate reference expression for possible API chain.
@@ -60,8 +92,8 @@ public class APIChainInspection extends AbstractBaseJavaLocalInspectionTool {
 
                 PsiElement local_variable = psiReferenceExpression.getParent();
                 if (local_variable instanceof PsiLocalVariable) {
-                    String variable = local_variable.toString().split(":")[1];
-                    reference_info.put(variable, reference_info.getOrDefault(reference, reference));
+                    String variable = ((PsiLocalVariable) local_variable).getName();
+                    getIndex(psiReferenceExpression).alias(variable, reference);
                 }
             }
 
@@ -88,46 +120,44 @@ public class APIChainInspection extends AbstractBaseJavaLocalInspectionTool {
                 // we do not consider println
                 if (!methodName.equals("System.out.println")) {
 
-                    // Step 1: record AST INFORMATION
-                    // get the method and its parent
-                    // store them in a hashmap
+                    // Step 1: record the variable the call defines
+                    // e.g. Foo x = call(); or x = call();
                     String text = psiMethodCallExpression.getText();
-                    String parent = psiMethodCallExpression.getParent().toString();
-                    parent = parent.split(" ")[0];
-
-                    ast_info.put(text, parent);
+                    ChainDefUseIndex index = getIndex(psiMethodCallExpression);
+                    PsiElement parent = psiMethodCallExpression.getParent();
+                    if (parent instanceof PsiLocalVariable) {
+                        index.define(((PsiLocalVariable) parent).getName(), text);
+                    }
+                    else if (parent instanceof PsiAssignmentExpression) {
+                        PsiAssignmentExpression assignment = (PsiAssignmentExpression) parent;
+                        if (assignment.getRExpression() == psiMethodCallExpression && assignment.getLExpression() instanceof PsiReferenceExpression) {
+                            index.define(assignment.getLExpression().getText(), text);
+                        }
+                    }
 
                     // Step 2: record potential API chain
                     PsiExpressionList argument_list = psiMethodCallExpression.getArgumentList();
 
                     if (!argument_list.isEmpty()) {
                         PsiExpression[] argument_expressions = argument_list.getExpressions();
-                        for (PsiExpression argument : argument_expressions) {
+                        for (int argumentIndex = 0; argumentIndex < argument_expressions.length; argumentIndex++) {
+                            PsiExpression argument = argument_expressions[argumentIndex];
                             // confirmed case of API chain
                             if (argument instanceof PsiMethodCallExpression) {
                                 holder.registerProblem(psiMethodCallExpression.getMethodExpression(), "API call involve " + argument.getText(), myQuickFix);
-                                int offset = psiMethodCallExpression.getTextOffset();
-                                int lineNumber = StringUtil.offsetToLineNumber(psiMethodCallExpression.getContainingFile().getText(), offset) + 1;
-                                generateReport(psiMethodCallExpression.getText() + " -> " + argument.getText() + " in line " + lineNumber);
+                                generateReport(reports, psiMethodCallExpression, argument.getText(), argumentIndex, argument);
 
                             } else if (argument instanceof PsiReferenceExpression) {
                                 String reference = ((PsiReferenceExpression) argument).getCanonicalText();
 
-                                if (reference_info.containsKey(reference)) {
-                                    reference = reference_info.get(reference);
+                                List<String> definitions = index.getDefinitions(reference);
+                                if (definitions.isEmpty()) {
+                                    definitions = getFieldDefinition((PsiReferenceExpression) argument);
                                 }
-
-                                for (Map.Entry<String, String> entry : ast_info.entrySet()) {
-                                    String key = entry.getKey();
-                                    String value = entry.getValue();
-                                    String variable = (value.contains(":") && (value.charAt(value.length() - 1) != ':')) ? value.split(":")[1] : value;
-                                    // found a reference API chain
-                                    if (variable.equals(reference)) {
-                                        holder.registerProblem(psiMethodCallExpression.getMethodExpression(), "API call involve " + key, myQuickFix);
-                                        int offset = psiMethodCallExpression.getTextOffset();
-                                        int lineNumber = StringUtil.offsetToLineNumber(psiMethodCallExpression.getContainingFile().getText(), offset) + 1;
-                                        generateReport(psiMethodCallExpression.getText() + " -> " + key + " in line " + lineNumber);
-                                    }
+                                // found a reference API chain for every call that defines the reference
+                                for (String key : definitions) {
+                                    holder.registerProblem(psiMethodCallExpression.getMethodExpression(), "API call involve " + key, myQuickFix);
+                                    generateReport(reports, psiMethodCallExpression, key, argumentIndex, argument);
                                 }
 
 
@@ -141,29 +171,46 @@ public class APIChainInspection extends AbstractBaseJavaLocalInspectionTool {
         };
     }
 
-    private static void generateReport(String APIChain) {
-        if (fileName == null) {
+    // add the report of an API chain found at the call, it is written in the background once the analysis is complete
+    // callee is the call involved by the argument at argumentIndex, e.g. the call a reference argument was assigned from
+    private static void generateReport(List<InspectionResultCache.Report> reports, PsiMethodCallExpression caller, String callee, int argumentIndex, PsiExpression argument) {
+        PsiFile file = caller.getContainingFile();
+        if (file == null) {
             return;
         }
-        try {
-            String output_file = "/Users/xinyuan/IdeaProjects/my_gradle_plugin/src/main/java/Report/" + fileName + ".txt";
-            File f = new File(output_file);
+        // the path tells apart files of the same name, a file that only exists in memory has none
+        VirtualFile virtualFile = file.getVirtualFile();
+        String path = (virtualFile != null) ? virtualFile.getPath() : file.getName();
+        PsiMethod method = PsiTreeUtil.getParentOfType(caller, PsiMethod.class);
+        reports.add(new ChainReportWriter.Record(path, method == null ? null : method.getName(),
+                caller.getText(), callee, argumentIndex, caller.getTextRange().getStartOffset(), argument.getTextRange().getStartOffset(),
+                LineNumbers.getLineNumber(caller)));
+    }
 
-            PrintWriter out = null;
-            if ( f.exists() && !f.isDirectory() ) {
-                out = new PrintWriter(new FileOutputStream(new File(output_file), true));
-            }
-            else {
-                out = new PrintWriter(output_file);
-            }
-            APIChain = APIChain + System.lineSeparator();
-            out.append(APIChain);
-            out.close();
-            String timeStamp = new SimpleDateFormat("yyyy.MM.dd. HH:mm:ss").format(new Date());
-            System.out.println("Successfully wrote to " + fileName + ".txt" + " at " + timeStamp);
-        } catch (IOException e) {
-            System.out.println("An error occurred.");
-            e.printStackTrace();
+    // the call a field passed as an argument is initialised with, possibly in another file
+    private static List<String> getFieldDefinition(PsiReferenceExpression argument) {
+        PsiElement target = argument.resolve();
+        PsiExpression initializer = (target instanceof PsiField) ? ((PsiField) target).getInitializer() : null;
+        return (initializer instanceof PsiMethodCallExpression)
+                ? Collections.singletonList(initializer.getText()) : Collections.<String>emptyList();
+    }
+
+    // estimated heap held by the chain state kept between files: the chains found by analyses and not yet handed to
+    // the writer, and the chains queued on the writer
+    public static long getRetainedStateBytes() {
+        return RESULTS.getPendingReportBytes() + ChainReportWriter.getInstance().estimateQueuedBytes();
+    }
+
+    // write the chains of the inspected file without waiting for the disk
+    // the chain state is logged for every file under debug logging, otherwise at most every STATE_LOG_INTERVAL_MILLIS
+    @Override
+    public void inspectionFinished(@NotNull LocalInspectionToolSession session, @NotNull ProblemsHolder problemsHolder) {
+        ChainReportWriter.getInstance().flush();
+        long now = System.currentTimeMillis();
+        long last = LAST_STATE_LOG.get();
+        if (LOG.isDebugEnabled() || (now - last >= STATE_LOG_INTERVAL_MILLIS && LAST_STATE_LOG.compareAndSet(last, now))) {
+            LOG.info("API chain state: " + ChainReportWriter.getInstance().getQueued() + " report(s) queued, ~"
+                    + getRetainedStateBytes() + " bytes retained");
         }
     }
 
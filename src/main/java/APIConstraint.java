@@ -4,13 +4,22 @@ This class holds the essential information of a API constraint obtained from KG
 
 public class APIConstraint {
     String start, end, check, violation, desc;
+    // qualified names of the classes declaring start and end, null if any method of that name is meant
+    String startClass, endClass;
 
     public APIConstraint(String start, String end, String check, String violation, String desc) {
-        this.start = start;
-        this.end = end;
+        this(start, end, check, violation, desc, null, null);
+    }
+
+    public APIConstraint(String start, String end, String check, String violation, String desc, String startClass, String endClass) {
+        // method names are interned like the names of MethodCallExp so that matching them is a reference check
+        this.start = (start == null) ? null : start.intern();
+        this.end = (end == null) ? null : end.intern();
         this.check = check;
         this.violation = violation;
         this.desc = desc;
+        this.startClass = startClass;
+        this.endClass = endClass;
     }
 
     public String getStart() {
@@ -21,6 +30,15 @@ public class APIConstraint {
         return this.end;
     }
 
+    // e.g. java.util.Iterator for next, a call of a subclass also matches
+    public String getStartClass() {
+        return this.startClass;
+    }
+
+    public String getEndClass() {
+        return this.endClass;
+    }
+
     public String getCheck() {
         return this.check;
     }
@@ -0,0 +1,75 @@
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/*
+This class holds the state of one APIKGInspection analysis, of a method or a whole file.
+Every visitor gets its own context, so analyses run concurrently never share collected calls or literals
+ */
+
+public class APIKGFileContext {
+
+    private final ProblemsHolder holder;
+    private final ConstraintRegistry constraintRegistry;
+
+    // calls collected so far, grouped by the function they belong to, until that function is analysed
+    private final HashMap<PsiMethod, List<MethodCallExp>> methodCallExpMap = new HashMap<>();
+    // local variable -> the literal it is initialised with
+    private final HashMap<String, String> literalExpMap = new HashMap<>();
+    // reports registered so far, by the text range of the element and the constraint violated
+    private final HashSet<List<Object>> reported = new HashSet<>();
+
+    // number of detections run in this analysis
+    private int detections = 0;
+
+    public APIKGFileContext(ProblemsHolder holder, ConstraintRegistry constraintRegistry) {
+        this.holder = holder;
+        this.constraintRegistry = constraintRegistry;
+    }
+
+    public ProblemsHolder getHolder() {
+        return this.holder;
+    }
+
+    // the constraint snapshot used for the whole pass
+    public ConstraintRegistry getConstraintRegistry() {
+        return this.constraintRegistry;
+    }
+
+    public void addCall(PsiMethod function, MethodCallExp call) {
+        methodCallExpMap.computeIfAbsent(function, k -> new ArrayList<>()).add(call);
+    }
+
+    // hand over the calls of a complete function, or null if it has none
+    public List<MethodCallExp> takeCalls(PsiMethod function) {
+        return methodCallExpMap.remove(function);
+    }
+
+    public void putLiteral(String variable, String literal) {
+        literalExpMap.put(variable, literal);
+    }
+
+    // the literal a local variable is initialised with, or null
+    public String getLiteral(String variable) {
+        return literalExpMap.get(variable);
+    }
+
+    // remember a report, false if the same constraint has already been reported on the same range
+    public boolean markReported(PsiElement psiElement, APIConstraint constraint) {
+        return reported.add(Arrays.<Object>asList(psiElement.getTextRange(), constraint));
+    }
+
+    public void countDetection() {
+        detections++;
+    }
+
+    public int getDetections() {
+        return this.detections;
+    }
+}
@@ -1,21 +1,12 @@
 import com.intellij.codeInspection.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
-
-import java.io.*;
 import java.util.List;
-import java.util.Map;
 
 public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
 
@@ -23,12 +14,12 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
     private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.APIKGInspection");
     private final CriQuickFix myQuickFix = new CriQuickFix();
 
+    // problems found by the last analysis of each file, replayed while the file is unchanged
+    private static final InspectionResultCache RESULTS = new InspectionResultCache("APIKGInspection", true);
+
     // Defines the text of the quick fix intention
     public static final String QUICK_FIX_NAME = "SDK: " + InspectionsBundle.message("inspection.comparing.references.use.quickfix");
 
-    private HashMap<String, MethodCallExp> methodCallExpMap = new HashMap<>();
-    private HashMap<String, String> literalExpMap = new HashMap<>();
-
     /**
      * This method is overridden to provide a custom visitor
      * that inspects methodCall with knowledge graph
@@ -42,10 +33,21 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        return RESULTS.buildVisitor(holder, isOnTheFly, this::buildAnalysisVisitor);
+    }
 
-        // clear the hashmap before run the visitor so that hashmap is always updated
-        methodCallExpMap.clear();
-        return new JavaElementVisitor() {
+    // the visitor that analyses a whole file, it is only run when the file has no cached problems
+    private PsiElementVisitor buildAnalysisVisitor(final ProblemsHolder holder) {
+
+        // all the state of this pass lives in its own context, so that files can be inspected in parallel
+        // take one snapshot of the constraints for the whole pass, a reload in the meantime does not affect it
+        final APIKGFileContext fileContext = new APIKGFileContext(holder, ConstraintRegistry.getInstance());
+        return new InspectionResultCache.AnalysisVisitor() {
+
+            @Override
+            public int getDetections() {
+                return fileContext.getDetections();
+            }
 
             /**
              * This string defines the short message shown to a user signaling the inspection
@@ -56,14 +58,20 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
 
 
             // we do detection in this method
+            // the elements of a method are visited before the method itself, so all its calls have been collected
+            // and each call is checked exactly once, when the function it belongs to is complete
             @Override
             public void visitMethod(PsiMethod psiMethod) {
                 super.visitMethod(psiMethod);
-                for (MethodCallExp m : methodCallExpMap.values()) {
-//                    System.out.println("Checking " + m.toString());
-                    detectAPIMisuse(m, holder);
+                List<MethodCallExp> calls = fileContext.takeCalls(psiMethod);
+                if (calls == null) {
+                    return;
+                }
+                CallSiteIndex callSiteIndex = new CallSiteIndex(calls);
+                for (MethodCallExp m : calls) {
+                    detectAPIMisuse(m, callSiteIndex, fileContext);
+                    fileContext.countDetection();
                 }
-                System.out.println();
             }
 
             /**
@@ -77,7 +85,11 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
 
                 PsiElement context = psiMethodCallExpression.getContext();
 
+                // e.g. a call in a field initializer does not belong to any function
                 PsiMethod rootFunction = findRootFunction(context);
+                if (rootFunction == null) {
+                    return;
+                }
                 String functionBelong = rootFunction.getName();
 
                 if (context instanceof PsiIfStatement || context instanceof PsiWhileStatement) {
@@ -88,10 +100,10 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
 
                 String methodName = referenceExpression.getQualifiedName();
 
-                int lineNumber = getLineNumber(psiMethodCallExpression);
+                int lineNumber = LineNumbers.getLineNumber(psiMethodCallExpression);
 
                 MethodCallExp methodCallExp = new MethodCallExp(psiMethodCallExpression, methodName, lineNumber, functionBelong);
-                methodCallExpMap.put(lineNumber+"-"+methodName, methodCallExp);
+                fileContext.addCall(rootFunction, methodCallExp);
 
             }
 
@@ -104,16 +116,24 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
             public void visitNewExpression(PsiNewExpression psiNewExpression) {
                 super.visitNewExpression(psiNewExpression);
 
-                String name = psiNewExpression.getClassReference().getQualifiedName();
-
-                int lineNumber = getLineNumber(psiNewExpression);
+                // array creation has no class reference
+                PsiJavaCodeReferenceElement classReference = psiNewExpression.getClassReference();
+                if (classReference == null) {
+                    return;
+                }
+                String name = classReference.getQualifiedName();
 
                 PsiElement context = psiNewExpression.getContext();
                 PsiMethod rootFunction = findRootFunction(context);
+                if (rootFunction == null) {
+                    return;
+                }
                 String functionBelong = rootFunction.getName();
 
+                int lineNumber = LineNumbers.getLineNumber(psiNewExpression);
+
                 MethodCallExp methodCallExp = new MethodCallExp(psiNewExpression, name, lineNumber, functionBelong);
-                methodCallExpMap.put(lineNumber+"-"+name, methodCallExp);
+                fileContext.addCall(rootFunction, methodCallExp);
             }
 
             @Override
@@ -123,7 +143,7 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
                 if (psiLiteralExpression.getParent() instanceof PsiLocalVariable) {
                     String str = psiLiteralExpression.getText();
                     String parent = ((PsiLocalVariable) psiLiteralExpression.getParent()).getName();
-                    literalExpMap.put(parent, str);
+                    fileContext.putLiteral(parent, str);
                 }
             }
 
@@ -131,152 +151,121 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
     }
 
     // perform detection, bless us!
-    private void detectAPIMisuse(MethodCallExp target, ProblemsHolder holder) {
+    private void detectAPIMisuse(MethodCallExp target, CallSiteIndex callSiteIndex, APIKGFileContext fileContext) {
 
         PsiElement psiElement = target.getElement();
 
-        String targetName = target.getName();
-        // remove qualifier
-        targetName = targetName.split("\\.")[targetName.split("\\.").length - 1];
+        // qualifier already removed
+        String targetName = target.getSimpleName();
 
         int target_at_line = target.getLineNumber();
 
-        String functionBelong = target.getFunctionBelong();
-
-        ArrayList<APIConstraint> constraints = checkConstraint(targetName);
+        ConstraintDispatch.Entry constraints = fileContext.getConstraintRegistry().getDispatch().lookup(targetName);
 
         // it has no API constraints, Hooray!
-        if (constraints.isEmpty()) {
+        if (constraints == null) {
             return;
         }
 
-        // iterate through the constraints and check if any is violated
-        for (APIConstraint constraint : constraints) {
-            String start = constraint.getStart();
-            String end = constraint.getEnd();
-            String check = constraint.getCheck();
-            String violation = constraint.getViolation();
-            String desc = constraint.getDesc();
+        // check precede call-order i.e. end is our target and start must be called before it
+        for (APIConstraint constraint : constraints.getPrecede()) {
 
-            String conditionOperator = conditionChecking(check);
+            // e.g. Container.remove has no constraint of Iterator.remove
+            if (!CallResolver.isDeclaredBy(psiElement, constraint.getEndClass())) {
+                continue;
+            }
 
-            // check precede call-order i.e. start is our target and end must be called after it
-            if (targetName.equals(end) && check.equals("precede")) {
+            // the precede call-order is maintained
+            if (callSiteIndex.isCalledAtOrBefore(constraint.getStart(), target_at_line)) {
+                continue;
+            }
+            // the required start method is not present
+            generateAPICaveatReport(psiElement, constraint, fileContext);
+        }
 
-                // TODO iterator.remove != jpanel.remove. Better naming needed to fix this problem
-                if (target.getName().contains("panel")) {
-                    continue;
-                }
+        // check follow call-order i.e. start is our target and end must be called after it
+        for (APIConstraint constraint : constraints.getFollow()) {
 
-                for (MethodCallExp methodCallExp : methodCallExpMap.values()) {
-                    if (methodCallExp.getName().split("\\.")[1].equals(start) && methodCallExp.getFunctionBelong().equals(functionBelong
-                    )) {
-                        int line_number = methodCallExp.getLineNumber();
+            if (!CallResolver.isDeclaredBy(psiElement, constraint.getStartClass())) {
+                continue;
+            }
 
-                        // the precede call-order is maintained
-                        if (line_number <= target_at_line) {
-                           return;
-                        }
-                    }
-                }
-                // the required start method is not present
-                generateAPICaveatReport(psiElement, desc, violation, holder);
+            // the follow call-order is maintained
+            if (callSiteIndex.isCalledAtOrAfter(constraint.getEnd(), target_at_line)) {
+                continue;
             }
+            // the required end method is not present
+            generateAPICaveatReport(psiElement, constraint, fileContext);
+        }
 
-            // check follow call-order i.e. start is our target and end must be called after it
-            if (targetName.equals(start) && check.equals("follow")) {
+        // check condition-checking i.e. if a value-checking or state-checking is present before start
+        if (!constraints.getConditions().isEmpty()) {
+            PsiElement result = checkConditionCheckingPresence(psiElement);
 
-                // TODO iterator.remove != jpanel.remove. Better naming needed to fix this problem
-                if (target.getName().contains("iterator")) {
+            for (ConstraintDispatch.ConditionCheck conditionCheck : constraints.getConditions()) {
+                APIConstraint constraint = conditionCheck.getConstraint();
+                if (!CallResolver.isDeclaredBy(psiElement, constraint.getStartClass())) {
                     continue;
                 }
-
-                for (MethodCallExp methodCallExp : methodCallExpMap.values()) {
-                    if (methodCallExp.getName().split("\\.")[1].equals(end) && methodCallExp.getFunctionBelong().equals(functionBelong
-                    )) {
-                        int line_number = methodCallExp.getLineNumber();
-
-                        // the follow call-order is maintained
-                        if (line_number >= target_at_line) {
-                            return;
-                        }
-                    }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(target.getName() + ": " + constraint);
                 }
-                // the required end method is not present
-                generateAPICaveatReport(psiElement, desc, violation, holder);
-            }
-
-            // check condition-checking i.e. if a value-checking or state-checking is present before start
-            if (targetName.equals(start) && conditionOperator != null) {
-
-                System.out.println(target.getName());
-                System.out.println(constraint.toString());
-
-                String conditionToBeCheck = check.split(conditionOperator)[0];
-                String stateToBe = check.split(conditionOperator)[1];
-
-                PsiElement result = checkConditionCheckingPresence(psiElement);
 
                 // no condition-checking present
                 if (result == null || result instanceof PsiMethod) {
                     // the required end method is not presented
-                    generateAPICaveatReport(psiElement, desc, violation, holder);
+                    generateAPICaveatReport(psiElement, constraint, fileContext);
                 }
                 // condition-checking present, check if it is the correct condition checking required
                 else {
-                    if (result instanceof PsiIfStatement) {
-                        PsiIfStatement ifStatement = (PsiIfStatement) result;
-                        PsiElement psiCondition = ifStatement.getCondition();
-                        evaluateCondition(psiCondition, conditionToBeCheck, stateToBe, psiElement, desc, violation, holder);
-                    }
-                    else {
-                        PsiWhileStatement whileStatement = (PsiWhileStatement) result;
-                        PsiElement psiCondition = whileStatement.getCondition();
-                        evaluateCondition(psiCondition, conditionToBeCheck, stateToBe, psiElement, desc, violation, holder);
-                    }
+                    PsiElement psiCondition = (result instanceof PsiIfStatement)
+                            ? ((PsiIfStatement) result).getCondition()
+                            : ((PsiWhileStatement) result).getCondition();
+                    evaluateCondition(psiCondition, conditionCheck.getConditionToBeCheck(), conditionCheck.getStateToBe(), psiElement, constraint, fileContext);
                 }
             }
+        }
 
-            // check if try-catch condition
-            if (targetName.equals(start) && check.equals("within try-catch")) {
-                Boolean withinTryCatch = checkTryCatchPresence(psiElement);
-                if (!withinTryCatch) {
-                    // it is not within a try-catch
-                    generateAPICaveatReport(psiElement, desc, violation, holder);
+        // check if try-catch condition
+        if (!constraints.getTryCatch().isEmpty() && !checkTryCatchPresence(psiElement)) {
+            // it is not within a try-catch
+            for (APIConstraint constraint : constraints.getTryCatch()) {
+                if (!CallResolver.isDeclaredBy(psiElement, constraint.getStartClass())) {
+                    continue;
                 }
+                generateAPICaveatReport(psiElement, constraint, fileContext);
             }
+        }
 
-            if (targetName.equals(start) && check.equals("char in String")) {
-                PsiMethodCallExpression psiMethodCallExpression = (PsiMethodCallExpression) psiElement;
-                String qualifer = psiMethodCallExpression.getMethodExpression().getQualifierExpression().getText();
-                for (Map.Entry entry : literalExpMap.entrySet()) {
-                    String parent = (String) entry.getKey();
-                    String string = (String) entry.getValue();
+        if (!constraints.getCharInString().isEmpty()) {
+            PsiMethodCallExpression psiMethodCallExpression = (PsiMethodCallExpression) psiElement;
+            PsiExpression qualifier = psiMethodCallExpression.getMethodExpression().getQualifierExpression();
+            String string = (qualifier == null) ? null : fileContext.getLiteral(qualifier.getText());
 
-                    if (parent.equals(qualifer)) {
-                        if (psiMethodCallExpression.getArgumentList().isEmpty()) {
-                            return;
-                        }
-                        String arg = psiMethodCallExpression.getArgumentList().getExpressions()[0].getText();
-                        if (!string.contains(arg)) {
-                            generateAPICaveatReport(psiElement, desc, violation, holder);
+            if (string != null && !psiMethodCallExpression.getArgumentList().isEmpty()) {
+                String arg = psiMethodCallExpression.getArgumentList().getExpressions()[0].getText();
+                if (!string.contains(arg)) {
+                    for (APIConstraint constraint : constraints.getCharInString()) {
+                        if (!CallResolver.isDeclaredBy(psiElement, constraint.getStartClass())) {
+                            continue;
                         }
+                        generateAPICaveatReport(psiElement, constraint, fileContext);
                     }
                 }
             }
         }
     }
 
-    private void evaluateCondition(PsiElement psiCondition, String conditionToBeCheck, String stateToBe, PsiElement psiElement, String desc, String violation, ProblemsHolder holder) {
+    private void evaluateCondition(PsiElement psiCondition, String conditionToBeCheck, String stateToBe, PsiElement psiElement, APIConstraint constraint, APIKGFileContext fileContext) {
         if (psiCondition instanceof PsiMethodCallExpression) {
             String condition = psiCondition.getText();
             condition = condition.replace("()", "");
             condition = condition.split("\\.")[condition.split("\\.").length - 1];
             if (!condition.equals(conditionToBeCheck)) {
-                generateAPICaveatReport(psiElement, desc, violation, holder);
+                generateAPICaveatReport(psiElement, constraint, fileContext);
             }
             else if (condition.equals(conditionToBeCheck) && stateToBe.equals("false")) {
-                generateAPICaveatReport(psiElement, desc, violation, holder);
+                generateAPICaveatReport(psiElement, constraint, fileContext);
 
             }
         }
@@ -290,7 +279,7 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
             condition = condition.replace("()", "");
             condition = condition.split("\\.")[condition.split("\\.").length - 1];
             if (!condition.equals(conditionToBeCheck) || !state.equals(stateToBe)) {
-                generateAPICaveatReport(psiElement, desc, violation, holder);
+                generateAPICaveatReport(psiElement, constraint, fileContext);
             }
         }
         else if (psiCondition instanceof PsiBinaryExpression) {
@@ -298,13 +287,13 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
             PsiExpression L = psiBinaryExpression.getLOperand();
             PsiExpression R = psiBinaryExpression.getROperand();
             if ((L instanceof PsiMethodCallExpression || L instanceof PsiPrefixExpression) && (R instanceof PsiMethodCallExpression || R instanceof PsiPrefixExpression)) {
-                evaluateBinaryCondition(L, R, conditionToBeCheck, stateToBe, psiElement, desc, violation, holder);
+                evaluateBinaryCondition(L, R, conditionToBeCheck, stateToBe, psiElement, constraint, fileContext);
             }
 
         }
     }
 
-    private void evaluateBinaryCondition(PsiElement L, PsiElement R, String conditionToBeCheck, String stateToBe, PsiElement psiElement, String desc, String violation, ProblemsHolder holder) {
+    private void evaluateBinaryCondition(PsiElement L, PsiElement R, String conditionToBeCheck, String stateToBe, PsiElement psiElement, APIConstraint constraint, APIKGFileContext fileContext) {
         boolean problem_detected = true;
 
         if (L instanceof PsiMethodCallExpression) {
@@ -352,42 +341,28 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
         }
 
         if (problem_detected) {
-            generateAPICaveatReport(psiElement, desc, violation, holder);
+            generateAPICaveatReport(psiElement, constraint, fileContext);
         }
     }
 
     // generate API misuse warning report and display it
-    private void generateAPICaveatReport(PsiElement psiElement, String desc, String violation, ProblemsHolder holder) {
+    private void generateAPICaveatReport(PsiElement psiElement, APIConstraint constraint, APIKGFileContext fileContext) {
 
         // prevents generating duplicate API misuse report
-        if (checkIfReportExisted(psiElement, desc, violation, holder)) {
+        if (!fileContext.markReported(psiElement, constraint)) {
             return;
         }
 
+        String desc = constraint.getDesc();
+        String violation = constraint.getViolation();
         if (violation == null) {
-            holder.registerProblem(psiElement, desc, myQuickFix);
+            fileContext.getHolder().registerProblem(psiElement, desc, myQuickFix);
         }
         else {
-            holder.registerProblem(psiElement, desc + ";\n if violated, throws " + violation, myQuickFix);
+            fileContext.getHolder().registerProblem(psiElement, desc + ";\n if violated, throws " + violation, myQuickFix);
         }
     }
 
-    // check if a API misuse report has already been generated for the PsiElement to prevent duplicate reports
-    private boolean checkIfReportExisted(PsiElement psiElement, String desc, String violation, ProblemsHolder holder) {
-        List<ProblemDescriptor> registeredProblems = holder.getResults();
-        String description = (violation == null) ? desc : desc + ";\n if violated, throws " + violation;
-        if (!registeredProblems.isEmpty()) {
-            for (ProblemDescriptor pd : registeredProblems) {
-                PsiElement existedPsiElement = pd.getPsiElement();
-                String existedDescription = pd.toString();
-                if (psiElement.isEquivalentTo(existedPsiElement) && description.equals(existedDescription)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     // Given a methodcall that needs to be within a TRY-CATCH, check if it is within
     private boolean checkTryCatchPresence(PsiElement psiElement) {
         PsiElement context = psiElement.getContext();
@@ -416,99 +391,10 @@ public class APIKGInspection extends AbstractBaseJavaLocalInspectionTool {
         }
     }
 
-    // see if the check component of the constraint is a condition-checking and return corresponding operator
-    // otherwise, return null which means that it is not a condition checking
-    private String conditionChecking(String check) {
-        if (check.contains("<=")) {
-            return "<=";
-        }
-        else if (check.contains(">=")) {
-            return ">=";
-        }
-        else if (check.contains("==")) {
-            return "==";
-        }
-        else if (check.contains("<")) {
-            return "<";
-        }
-        else if (check.contains(">")) {
-            return ">";
-        }
-        return null;
-    }
-
-    // get the line number of the code in the inspecting Java file
-    private int getLineNumber(PsiElement psiElement) {
-        int offset = psiElement.getTextOffset();
-        return StringUtil.offsetToLineNumber(psiElement.getContainingFile().getText(), offset) + 1;
-    }
-
     // finds the root function of a method so that we know which function does it belongs to
+    // null if the code is not in a method, e.g. in a field initializer, the search stops at the class
     private PsiMethod findRootFunction(PsiElement psiElement) {
-        PsiElement context = psiElement.getContext();
-        if (context == null) {
-            System.out.println("NULL found: " + psiElement.getText());
-        }
-        if (context != null && !(context instanceof PsiMethod)) {
-            return findRootFunction(context);
-        }
-        else {
-            return (PsiMethod) context;
-        }
-    }
-
-    // read JSON file
-    public static String readJsonFile(String fileName) {
-        String jsonStr = "";
-        try {
-            File jsonFile = new File(fileName);
-            FileReader fileReader = new FileReader(jsonFile);
-            Reader reader = new InputStreamReader(new FileInputStream(jsonFile),"utf-8");
-            int ch = 0;
-            StringBuffer sb = new StringBuffer();
-            while ((ch = reader.read()) != -1) {
-                sb.append((char) ch);
-            }
-            fileReader.close();
-            reader.close();
-            jsonStr = sb.toString();
-            return jsonStr;
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
-
-    // Given a method element, find all the API constraints associated to it
-    public static ArrayList<APIConstraint> checkConstraint(String target) {
-        String path = "/Users/xinyuan/IdeaProjects/my_gradle_plugin/src/main/java/constraint.json";
-        String s = readJsonFile(path);
-        JSONObject jobj = JSON.parseObject(s);
-        JSONArray nodes = jobj.getJSONArray("constraint");
-        //构建JSONArray数组
-        ArrayList<APIConstraint> constrains = new ArrayList<>();
-        for (int i = 0 ; i < nodes.size();i++){
-            JSONObject key = (JSONObject)nodes.get(i);
-            String start = (String)key.get("start");
-            String end = ((String)key.get("end"));
-            if (start.equals(target)) {
-                JSONObject constraint = key.getJSONObject("constraint");
-                String check = (String) constraint.get("check");
-                String violation = (String) constraint.get("Violation");
-                String desc = (String) constraint.get("Desc");
-                APIConstraint apiConstraint = new APIConstraint(start, end, check, violation, desc);
-                constrains.add(apiConstraint);
-            }
-            if (end != null && end.equals(target)) {
-                JSONObject constraint = key.getJSONObject("constraint");
-                String check = (String) constraint.get("check");
-                String violation = (String) constraint.get("Violation");
-                String desc = (String) constraint.get("Desc");
-                APIConstraint apiConstraint = new APIConstraint(start, end, check, violation, desc);
-                constrains.add(apiConstraint);
-            }
-        }
-        return constrains;
+        return PsiTreeUtil.getParentOfType(psiElement, PsiMethod.class, false, PsiClass.class);
     }
 
     /**
@@ -30,49 +30,28 @@ public class ASTtriplet {
     }
 
     public String toString() {
-        String output = "";
-        // first entity
-        int first_entity_size = first_entity.size();
-        output += "{";
-        for (int i=0; i<first_entity_size; i++) {
-            if (i != first_entity_size - 1) {
-                output += first_entity.get(i) + ", ";
-            }
-            else {
-                output += first_entity.get(i);
-
-            }
-        }
-        output += "}, ";
-        // second entity
-        int second_entity_size = second_entity.size();
-        output += "{";
-        for (int i=0; i<second_entity_size; i++) {
-            if (i != second_entity_size - 1) {
-                output += second_entity.get(i) + ", ";
-            }
-            else {
-                output += second_entity.get(i);
+        return appendTo(new StringBuilder()).toString();
+    }
 
-            }
-        }
-        output += "}, ";
-        // third entity
-        int third_entity_size = third_entity.size();
-        output += "{";
-        for (int i=0; i<third_entity_size; i++) {
-            if (i != third_entity_size - 1) {
-                output += third_entity.get(i) + ", ";
-            }
-            else {
-                output += third_entity.get(i);
+    // write "name: <{first}, {second}, {third}>" to the given builder, so one builder can be reused for many triplets
+    public StringBuilder appendTo(StringBuilder output) {
+        output.append(name).append(": <");
+        appendEntity(output, first_entity);
+        output.append(", ");
+        appendEntity(output, second_entity);
+        output.append(", ");
+        appendEntity(output, third_entity);
+        return output.append('>');
+    }
 
+    private static void appendEntity(StringBuilder output, ArrayList<String> entity) {
+        output.append('{');
+        for (int i=0; i<entity.size(); i++) {
+            if (i != 0) {
+                output.append(", ");
             }
+            output.append(entity.get(i));
         }
-        output += "}";
-        // final output string
-        return name + ": <" + output + ">";
+        output.append('}');
     }
-
-
 }
@@ -0,0 +1,67 @@
+package ASTtriplet;
+
+import java.util.HashMap;
+
+/*
+The relation (third entity) of a triplet.
+OTHER stands for a relation label that is not listed here
+ */
+
+public enum Relation {
+
+    METHOD_DEFINITION("MethodDefinition"),
+    METHOD_BODY("MethodBody"),
+    DECLARATION_STATEMENT("DeclarationStatement"),
+    NEW_EXPRESSION("NewExpression"),
+    RETURN_STATEMENT("ReturnStatement"),
+    METHOD_CALL_EXPRESSION("MethodCallExpression"),
+    EXPRESSION_STATEMENT("ExpressionStatement"),
+    IF_STATEMENT("IfStatement"),
+    IF_CONDITION("IfCondition"),
+    IF_BODY("IfBody"),
+    THEN_BRANCH("ThenBranch"),
+    ELSE_SECTION("ElseSection"),
+    BINARY_EXPRESSION("BinaryExpression"),
+    LITERAL_EXPRESSION("LiteralExpression"),
+    TRY_STATEMENT("TryStatement"),
+    CATCH_SECTION("CatchSection"),
+    ASSIGNMENT_EXPRESSION("AssignmentExpression"),
+    ARRAY_INITIALIZER_EXPRESSION("ArrayInitializerExpression"),
+    POST_FIX_EXPRESSION("PostFixExpression"),
+    FOR_STATEMENT("ForStatement"),
+    FOR_BODY("ForBody"),
+    WHILE_STATEMENT("WhileStatement"),
+    WHILE_BODY("WhileBody"),
+    WHILE_CONDITION("WhileCondition"),
+    OTHER("");
+
+    private static final Relation[] VALUES = values();
+    private static final HashMap<String, Relation> BY_LABEL = new HashMap<>();
+
+    static {
+        for (Relation relation : VALUES) {
+            BY_LABEL.put(relation.label, relation);
+        }
+    }
+
+    private final String label;
+
+    Relation(String label) {
+        this.label = label;
+    }
+
+    // the label used in the "Relation: <label>" entity
+    public String getLabel() {
+        return this.label;
+    }
+
+    // the relation with the given label, OTHER if there is none
+    public static Relation fromLabel(String label) {
+        Relation relation = BY_LABEL.get(label);
+        return relation == null ? OTHER : relation;
+    }
+
+    static Relation fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,44 @@
+package ASTtriplet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+This class maps the names and types of one triplet table to dense int IDs, so that triplets can be compared by int
+ */
+
+public class SymbolTable {
+
+    public static final int NO_SYMBOL = -1;
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final ArrayList<String> strings = new ArrayList<>();
+
+    // the ID of the given string, adding it if it is new
+    public int intern(String s) {
+        if (s == null) {
+            return NO_SYMBOL;
+        }
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = strings.size();
+            ids.put(s, id);
+            strings.add(s);
+        }
+        return id;
+    }
+
+    // the ID of the given string, NO_SYMBOL if it is not in this table
+    public int lookup(String s) {
+        Integer id = ids.get(s);
+        return id == null ? NO_SYMBOL : id;
+    }
+
+    public String getString(int id) {
+        return id == NO_SYMBOL ? null : strings.get(id);
+    }
+
+    public int size() {
+        return strings.size();
+    }
+}
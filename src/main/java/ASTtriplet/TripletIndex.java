@@ -0,0 +1,177 @@
+package ASTtriplet;
+
+import java.util.Arrays;
+
+/*
+This class indexes the triplets of one TripletTable by relation, by head value and by triplet ID.
+It is built once per method after all the triplets are compiled, so that a rule check only visits the triplets it asks for.
+Every list of rows it returns is in table order
+ */
+
+public class TripletIndex {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final TripletTable table;
+
+    // rows of relation r are relationRows[relationStarts[r]] .. relationRows[relationStarts[r + 1] - 1]
+    private final int[] relationStarts;
+    private final int[] relationRows;
+    // rows whose head value is symbol s are headRows[headStarts[s]] .. headRows[headStarts[s + 1] - 1]
+    private final int[] headStarts;
+    private final int[] headRows;
+    // (ID << 32 | row) of every triplet, sorted by ID and then by row
+    private final long[] idOrder;
+
+    private TripletIndex(TripletTable table) {
+        this.table = table;
+        int size = table.size();
+
+        this.relationStarts = new int[Relation.values().length + 1];
+        this.relationRows = new int[size];
+        this.headStarts = new int[table.getSymbols().size() + 1];
+        int headCount = 0;
+        for (int row = 0; row < size; row++) {
+            relationStarts[table.getRelation(row).ordinal() + 1]++;
+            if (table.getHeadValue(row) != SymbolTable.NO_SYMBOL) {
+                headStarts[table.getHeadValue(row) + 1]++;
+                headCount++;
+            }
+        }
+        this.headRows = new int[headCount];
+        prefixSum(relationStarts);
+        prefixSum(headStarts);
+
+        int[] relationNext = Arrays.copyOf(relationStarts, relationStarts.length - 1);
+        int[] headNext = Arrays.copyOf(headStarts, headStarts.length - 1);
+        this.idOrder = new long[size];
+        for (int row = 0; row < size; row++) {
+            relationRows[relationNext[table.getRelation(row).ordinal()]++] = row;
+            if (table.getHeadValue(row) != SymbolTable.NO_SYMBOL) {
+                headRows[headNext[table.getHeadValue(row)]++] = row;
+            }
+            idOrder[row] = ((long) table.getID(row) << 32) | row;
+        }
+        Arrays.sort(idOrder);
+    }
+
+    public static TripletIndex build(TripletTable table) {
+        return new TripletIndex(table);
+    }
+
+    public TripletTable getTable() {
+        return this.table;
+    }
+
+    // the rows with the given relation
+    public int[] getRows(Relation relation) {
+        return Arrays.copyOfRange(relationRows, relationStarts[relation.ordinal()], relationStarts[relation.ordinal() + 1]);
+    }
+
+    // the rows whose first head entity has the given value symbol, whatever its key
+    public int[] getRowsWithHead(int value) {
+        if (value == SymbolTable.NO_SYMBOL) {
+            return NO_ROWS;
+        }
+        return Arrays.copyOfRange(headRows, headStarts[value], headStarts[value + 1]);
+    }
+
+    // the rows with the given triplet ID; IDs are not always unique within a method
+    public int[] getRowsWithID(int id) {
+        int from = lowerBound((long) id << 32);
+        int to = lowerBound(((long) id + 1) << 32);
+        int[] rows = new int[to - from];
+        for (int i = from; i < to; i++) {
+            rows[i - from] = (int) idOrder[i];
+        }
+        return rows;
+    }
+
+    // the first row whose head is "key: value", -1 if there is none
+    public int firstRowWithHead(int key, int value) {
+        for (int row : getRowsWithHead(value)) {
+            if (table.getHeadKey(row) == key) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // the last row whose head is "key: value" and that has the given relation, -1 if there is none
+    public int lastRowWithHead(Relation relation, int key, int value) {
+        int[] rows = getRowsWithHead(value);
+        for (int i = rows.length - 1; i >= 0; i--) {
+            if (table.getHeadKey(rows[i]) == key && table.getRelation(rows[i]) == relation) {
+                return rows[i];
+            }
+        }
+        return -1;
+    }
+
+    // the first row with the given relation, -1 if there is none
+    public int firstRow(Relation relation) {
+        int start = relationStarts[relation.ordinal()];
+        return start < relationStarts[relation.ordinal() + 1] ? relationRows[start] : -1;
+    }
+
+    // the smallest triplet ID among the rows whose head is "key: value", Integer.MAX_VALUE if there is none
+    public int getMinID(int key, int value) {
+        int min = Integer.MAX_VALUE;
+        for (int row : getRowsWithHead(value)) {
+            if (table.getHeadKey(row) == key) {
+                min = Math.min(min, table.getID(row));
+            }
+        }
+        return min;
+    }
+
+    // the largest triplet ID among the rows whose head is "key: value", Integer.MIN_VALUE if there is none
+    public int getMaxID(int key, int value) {
+        int max = Integer.MIN_VALUE;
+        for (int row : getRowsWithHead(value)) {
+            if (table.getHeadKey(row) == key) {
+                max = Math.max(max, table.getID(row));
+            }
+        }
+        return max;
+    }
+
+    // the rows of both lists, in table order
+    public static int[] merge(int[] first, int[] second) {
+        int[] rows = new int[first.length + second.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < first.length && j < second.length) {
+            rows[k++] = first[i] <= second[j] ? first[i++] : second[j++];
+        }
+        while (i < first.length) {
+            rows[k++] = first[i++];
+        }
+        while (j < second.length) {
+            rows[k++] = second[j++];
+        }
+        return rows;
+    }
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = idOrder.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idOrder[mid] < key) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void prefixSum(int[] starts) {
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package ASTtriplet;
+
+import java.util.Arrays;
+
+/*
+This class is the compact form of the triplets of one method, stored column by column.
+Every entity "Key: value" is kept as a key and a value symbol, the relation as a Relation ordinal
+and the triplets a triplet refers to as int links. The table is written directly by a Builder, no text is parsed.
+Only the first entity of the head and the first TAIL_WIDTH entities of the tail are kept, which is all the rule checks read
+ */
+
+public class TripletTable {
+
+    public static final int TAIL_WIDTH = 2;
+
+    private final SymbolTable symbols;
+    private final int size;
+
+    private final int[] ids;
+    private final byte[] relations;
+    private final int[] headKeys;
+    private final int[] headValues;
+    // TAIL_WIDTH entries per triplet
+    private final int[] tailKeys;
+    private final int[] tailValues;
+    // links of triplet i are links[linkStarts[i]] .. links[linkStarts[i + 1] - 1]
+    private final int[] linkStarts;
+    private final int[] links;
+    // the rows of the block opened by triplet i are i + 1 .. scopeEnds[i] - 1
+    private final int[] scopeEnds;
+
+    private TripletTable(SymbolTable symbols, int size, int[] ids, byte[] relations, int[] headKeys, int[] headValues,
+                         int[] tailKeys, int[] tailValues, int[] linkStarts, int[] links, int[] scopeEnds) {
+        this.symbols = symbols;
+        this.size = size;
+        this.ids = ids;
+        this.relations = relations;
+        this.headKeys = headKeys;
+        this.headValues = headValues;
+        this.tailKeys = tailKeys;
+        this.tailValues = tailValues;
+        this.linkStarts = linkStarts;
+        this.links = links;
+        this.scopeEnds = scopeEnds;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public SymbolTable getSymbols() {
+        return this.symbols;
+    }
+
+    public String getString(int symbol) {
+        return symbols.getString(symbol);
+    }
+
+    public int getID(int row) {
+        return ids[row];
+    }
+
+    public Relation getRelation(int row) {
+        return Relation.fromOrdinal(relations[row]);
+    }
+
+    public int getHeadKey(int row) {
+        return headKeys[row];
+    }
+
+    public int getHeadValue(int row) {
+        return headValues[row];
+    }
+
+    public int getTailKey(int row, int index) {
+        return tailKeys[row * TAIL_WIDTH + index];
+    }
+
+    public int getTailValue(int row, int index) {
+        return tailValues[row * TAIL_WIDTH + index];
+    }
+
+    // true if the first head entity of the triplet is "key: value"
+    public boolean hasHead(int row, int key, int value) {
+        return value != SymbolTable.NO_SYMBOL && headKeys[row] == key && headValues[row] == value;
+    }
+
+    // true if the given tail entity of the triplet is "key: value"
+    public boolean hasTail(int row, int index, int key, int value) {
+        int i = row * TAIL_WIDTH + index;
+        return value != SymbolTable.NO_SYMBOL && tailKeys[i] == key && tailValues[i] == value;
+    }
+
+    // number of triplets this triplet refers to
+    public int getLinkCount(int row) {
+        return linkStarts[row + 1] - linkStarts[row];
+    }
+
+    // the ID of the index-th triplet this triplet refers to
+    public int getLink(int row, int index) {
+        return links[linkStarts[row] + index];
+    }
+
+    // the row after the last row of the block the triplet opens, e.g. the try block of a try statement
+    // row + 1 if the triplet opens no block
+    public int getScopeEnd(int row) {
+        return scopeEnds[row];
+    }
+
+    // builds a table one triplet at a time, in the order the triplets are added
+    // the entities of a triplet can still be added after later triplets, e.g. when an argument is a nested call
+    public static class Builder {
+
+        private static final byte NO_RELATION = -1;
+
+        private final SymbolTable symbols = new SymbolTable();
+        private int size = 0;
+
+        private int[] ids = new int[16];
+        private byte[] relations = new byte[16];
+        private int[] headKeys = new int[16];
+        private int[] headValues = new int[16];
+        private int[] tailKeys = new int[16 * TAIL_WIDTH];
+        private int[] tailValues = new int[16 * TAIL_WIDTH];
+        private byte[] tailCounts = new byte[16];
+        private int[] scopeEnds = new int[16];
+        // the row and the ID of every link, in the order they were added
+        private int[] linkRows = new int[16];
+        private int[] linkIDs = new int[16];
+        private int linkCount = 0;
+
+        // add a triplet with the given ID and no entity yet, returns its row
+        public int add(int id) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                relations = Arrays.copyOf(relations, capacity);
+                headKeys = Arrays.copyOf(headKeys, capacity);
+                headValues = Arrays.copyOf(headValues, capacity);
+                tailKeys = Arrays.copyOf(tailKeys, capacity * TAIL_WIDTH);
+                tailValues = Arrays.copyOf(tailValues, capacity * TAIL_WIDTH);
+                tailCounts = Arrays.copyOf(tailCounts, capacity);
+                scopeEnds = Arrays.copyOf(scopeEnds, capacity);
+            }
+            ids[size] = id;
+            relations[size] = NO_RELATION;
+            headKeys[size] = SymbolTable.NO_SYMBOL;
+            headValues[size] = SymbolTable.NO_SYMBOL;
+            Arrays.fill(tailKeys, size * TAIL_WIDTH, (size + 1) * TAIL_WIDTH, SymbolTable.NO_SYMBOL);
+            Arrays.fill(tailValues, size * TAIL_WIDTH, (size + 1) * TAIL_WIDTH, SymbolTable.NO_SYMBOL);
+            tailCounts[size] = 0;
+            scopeEnds[size] = size + 1;
+            return size++;
+        }
+
+        // the relation of the triplet, only the first one given is kept
+        public void setRelation(int row, Relation relation) {
+            if (relations[row] == NO_RELATION) {
+                relations[row] = (byte) relation.ordinal();
+            }
+        }
+
+        // add a head entity "key: value", value may be null; only the first one is kept
+        public void addHead(int row, String key, String value) {
+            if (headKeys[row] == SymbolTable.NO_SYMBOL) {
+                headKeys[row] = symbols.intern(key);
+                headValues[row] = symbols.intern(value);
+            }
+        }
+
+        // add a tail entity "key: value", value may be null; only the first TAIL_WIDTH are kept
+        public void addTail(int row, String key, String value) {
+            int count = tailCounts[row];
+            if (count < TAIL_WIDTH) {
+                tailKeys[row * TAIL_WIDTH + count] = symbols.intern(key);
+                tailValues[row * TAIL_WIDTH + count] = symbols.intern(value);
+                tailCounts[row]++;
+            }
+        }
+
+        // the triplet refers to the triplet with the given ID
+        public void addLink(int row, int id) {
+            if (linkCount == linkRows.length) {
+                linkRows = Arrays.copyOf(linkRows, linkCount * 2);
+                linkIDs = Arrays.copyOf(linkIDs, linkCount * 2);
+            }
+            linkRows[linkCount] = row;
+            linkIDs[linkCount] = id;
+            linkCount++;
+        }
+
+        // the triplet opens a block made of every row added after it so far
+        public void closeScope(int row) {
+            scopeEnds[row] = size;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public TripletTable build() {
+            byte[] relationsOf = Arrays.copyOf(relations, size);
+            for (int row = 0; row < size; row++) {
+                if (relationsOf[row] == NO_RELATION) {
+                    relationsOf[row] = (byte) Relation.OTHER.ordinal();
+                }
+            }
+            // group the links by row, keeping their order within a row
+            int[] linkStarts = new int[size + 1];
+            for (int i = 0; i < linkCount; i++) {
+                linkStarts[linkRows[i] + 1]++;
+            }
+            for (int row = 0; row < size; row++) {
+                linkStarts[row + 1] += linkStarts[row];
+            }
+            int[] next = Arrays.copyOf(linkStarts, size);
+            int[] links = new int[linkCount];
+            for (int i = 0; i < linkCount; i++) {
+                links[next[linkRows[i]]++] = linkIDs[i];
+            }
+            return new TripletTable(symbols, size, Arrays.copyOf(ids, size), relationsOf, Arrays.copyOf(headKeys, size),
+                    Arrays.copyOf(headValues, size), Arrays.copyOf(tailKeys, size * TAIL_WIDTH),
+                    Arrays.copyOf(tailValues, size * TAIL_WIDTH), linkStarts, links, Arrays.copyOf(scopeEnds, size));
+        }
+    }
+}
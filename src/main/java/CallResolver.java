@@ -0,0 +1,72 @@
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.*;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.InheritanceUtil;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.psi.util.PsiTreeUtil;
+
+/*
+This class resolves a call to the class declaring the called method or constructor, so that constraints can tell
+Iterator.remove from Container.remove. The class is cached on the call element until the PSI is modified,
+so each call is resolved once however many constraints and inspections look at it
+ */
+
+public final class CallResolver {
+
+    private static final Key<CachedValue<PsiClass>> DECLARING_CLASS = Key.create("APIKG.DECLARING_CLASS");
+
+    private CallResolver() {
+    }
+
+    // check if the called method is declared by the given class or one of its subclasses
+    // a constraint without a class matches any call, a call that cannot be resolved only matches such a constraint
+    public static boolean isDeclaredBy(PsiElement call, String className) {
+        if (className == null) {
+            return true;
+        }
+        PsiClass declaringClass = getDeclaringClass(call);
+        return declaringClass != null && InheritanceUtil.isInheritor(declaringClass, className);
+    }
+
+    // the class declaring the method called by the element, null if it cannot be resolved
+    public static PsiClass getDeclaringClass(PsiElement call) {
+        return CachedValuesManager.getCachedValue(call, DECLARING_CLASS,
+                () -> CachedValueProvider.Result.create(resolveDeclaringClass(call), PsiModificationTracker.MODIFICATION_COUNT));
+    }
+
+    private static PsiClass resolveDeclaringClass(PsiElement call) {
+        if (call instanceof PsiMethodCallExpression) {
+            return getContainingClass(((PsiMethodCallExpression) call).resolveMethod());
+        }
+        if (call instanceof PsiNewExpression) {
+            PsiNewExpression psiNewExpression = (PsiNewExpression) call;
+            PsiMethod constructor = psiNewExpression.resolveConstructor();
+            if (constructor != null) {
+                return constructor.getContainingClass();
+            }
+            // the default constructor is not in the PSI, the created class declares it
+            PsiJavaCodeReferenceElement classReference = psiNewExpression.getClassReference();
+            return classReference == null ? null : resolveDeclaringClass(classReference);
+        }
+        // e.g. the panel.add of a call, or the FileReader of a new expression
+        if (call instanceof PsiJavaCodeReferenceElement) {
+            PsiElement resolved = ((PsiJavaCodeReferenceElement) call).resolve();
+            if (resolved instanceof PsiMethod) {
+                return getContainingClass((PsiMethod) resolved);
+            }
+            return (resolved instanceof PsiClass) ? (PsiClass) resolved : null;
+        }
+        // e.g. FileReader fr = new FileReader(file);
+        if (call instanceof PsiDeclarationStatement) {
+            PsiNewExpression psiNewExpression = PsiTreeUtil.findChildOfType(call, PsiNewExpression.class);
+            return psiNewExpression == null ? null : getDeclaringClass(psiNewExpression);
+        }
+        return null;
+    }
+
+    private static PsiClass getContainingClass(PsiMethod psiMethod) {
+        return psiMethod == null ? null : psiMethod.getContainingClass();
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+This class indexes the call sites of one function: simple method name -> sorted line numbers of its calls,
+so that call-order checks like "is validate called after line L" look at one sorted array instead of scanning all calls
+ */
+
+public class CallSiteIndex {
+
+    private static final int[] NO_LINES = new int[0];
+
+    private final HashMap<String, int[]> lines = new HashMap<>();
+
+    public CallSiteIndex(Collection<MethodCallExp> calls) {
+        HashMap<String, List<Integer>> collected = new HashMap<>();
+        for (MethodCallExp call : calls) {
+            collected.computeIfAbsent(call.getSimpleName(), k -> new ArrayList<>()).add(call.getLineNumber());
+        }
+        for (Map.Entry<String, List<Integer>> entry : collected.entrySet()) {
+            List<Integer> list = entry.getValue();
+            int[] sorted = new int[list.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = list.get(i);
+            }
+            Arrays.sort(sorted);
+            lines.put(entry.getKey(), sorted);
+        }
+    }
+
+    // is there a call to methodName on the given line or before it
+    public boolean isCalledAtOrBefore(String methodName, int lineNumber) {
+        int[] sorted = getLines(methodName);
+        return sorted.length > 0 && sorted[0] <= lineNumber;
+    }
+
+    // is there a call to methodName on the given line or after it
+    public boolean isCalledAtOrAfter(String methodName, int lineNumber) {
+        int[] sorted = getLines(methodName);
+        return sorted.length > 0 && sorted[sorted.length - 1] >= lineNumber;
+    }
+
+    // sorted line numbers of the calls to methodName
+    public int[] getLines(String methodName) {
+        int[] sorted = lines.get(methodName);
+        return sorted == null ? NO_LINES : sorted;
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+This class maps the local variables of one method to the calls that define them, for APIChainInspection.
+It is filled while the visitor walks the method, so a reference passed as an argument is resolved with one lookup
+instead of a scan of every call seen so far. An alias such as Foo b = a; resolves to the calls that define a
+ */
+
+final class ChainDefUseIndex {
+
+    // variable -> text of the calls it is initialised with or assigned, in the order they are visited
+    private final HashMap<String, List<String>> definitions = new HashMap<>();
+    // variable -> the variable it was initialised with
+    private final HashMap<String, String> aliases = new HashMap<>();
+
+    // the variable is initialised with or assigned the call
+    void define(String variable, String call) {
+        List<String> calls = definitions.computeIfAbsent(variable, k -> new ArrayList<>(1));
+        if (!calls.contains(call)) {
+            calls.add(call);
+        }
+    }
+
+    // the variable is initialised with another variable
+    void alias(String variable, String reference) {
+        aliases.put(variable, aliases.getOrDefault(reference, reference));
+    }
+
+    // the calls that define the variable a reference stands for, empty if there is none
+    List<String> getDefinitions(String reference) {
+        List<String> calls = definitions.get(aliases.getOrDefault(reference, reference));
+        return calls == null ? Collections.<String>emptyList() : calls;
+    }
+}
@@ -0,0 +1,381 @@
+import com.alibaba.fastjson.JSONObject;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Disposer;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+This class writes the API chains found by APIChainInspection.
+An inspection only puts records on a bounded lock-free queue and never touches the disk. A single background thread
+drains the queue and appends each batch with one buffered writer per output. When the queue is full, records are
+dropped and counted rather than blocking highlighting.
+
+The reports are written to the directory given with -Dapikg.report.dir=<directory>, by default to apikg-reports in
+the system directory of the IDE (PathManager.getSystemPath()).
+The format is chosen with -Dapikg.report.format:
+    text    (default) one report per inspected file, <file name>.txt, a line "caller -> callee in line N" per chain
+    jsonl   one stream for all files, APIChains.jsonl, a JSON object per line with the fields of a Record
+            (a missing method is left out)
+    binary  one stream for all files, APIChains.bin, for the KG build (big-endian, strings are an int byte length
+            followed by UTF-8 bytes, -1 for a missing string):
+                header  magic "APCH", version, written when the stream is created
+                record  int length of the rest of the record, then file path, method, caller, callee (strings),
+                        argument index, offset, argument offset, line (ints)
+Records are appended as they are found, so a scan of a whole project can be consumed while it is running.
+The writer is disposed with the application: it stops and writes the records still queued
+ */
+
+final class ChainReportWriter implements Runnable, Disposable {
+
+    private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.ChainReportWriter");
+
+    static final String REPORT_DIR_PROPERTY = "apikg.report.dir";
+    // the directory under the system directory of the IDE the reports go to by default
+    static final String DEFAULT_REPORT_DIR = "apikg-reports";
+    static final String REPORT_FORMAT_PROPERTY = "apikg.report.format";
+
+    static final int BINARY_MAGIC = 0x41504348; // "APCH"
+    static final int BINARY_VERSION = 1;
+    static final String JSONL_STREAM = "APIChains.jsonl";
+    static final String BINARY_STREAM = "APIChains.bin";
+
+    // records waiting to be written, at most
+    static final int CAPACITY = 8192;
+
+    // queued records are written at least this often, even if no inspection finishes
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    // how long the application waits on dispose for the last records to be written
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private static final ChainReportWriter INSTANCE = new ChainReportWriter(getReportDirectory(),
+            Format.fromName(System.getProperty(REPORT_FORMAT_PROPERTY)));
+
+    enum Format {
+        TEXT, JSONL, BINARY;
+
+        // the format of the given name, text if there is none or it is unknown
+        static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            if (name != null) {
+                LOG.warn("Unknown API chain report format " + name + ", writing text");
+            }
+            return TEXT;
+        }
+    }
+
+    private final Path directory;
+    private final Format format;
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    // started with the first record
+    private volatile Thread thread;
+    // set when the application is disposed, no record is taken after it
+    private volatile boolean stopped;
+
+    private ChainReportWriter(Path directory, Format format) {
+        this.directory = directory;
+        this.format = format;
+    }
+
+    static ChainReportWriter getInstance() {
+        return INSTANCE;
+    }
+
+    // the directory set with -Dapikg.report.dir, or the default one in the system directory
+    private static Path getReportDirectory() {
+        String directory = System.getProperty(REPORT_DIR_PROPERTY);
+        return (directory != null) ? Paths.get(directory) : Paths.get(PathManager.getSystemPath(), DEFAULT_REPORT_DIR);
+    }
+
+    // queue an API chain, false if the queue is full and the chain is dropped
+    boolean write(Record record) {
+        if (stopped) {
+            return false;
+        }
+        if (queued.incrementAndGet() > CAPACITY) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.offer(record);
+        start();
+        return true;
+    }
+
+    // records waiting to be written
+    int getQueued() {
+        return queued.get();
+    }
+
+    // estimated heap held by the records waiting to be written, in bytes
+    long estimateQueuedBytes() {
+        long bytes = 0;
+        for (Record record : queue) {
+            bytes += record.estimateBytes();
+        }
+        return bytes;
+    }
+
+    // ask the writer to write the queued records now, without waiting for it
+    void flush() {
+        Thread writer = thread;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void start() {
+        if (thread != null) {
+            return;
+        }
+        synchronized (this) {
+            if (thread == null) {
+                Thread writer = new Thread(this, "APIKG chain report writer");
+                writer.setDaemon(true);
+                thread = writer;
+                writer.start();
+                // none when the writer is used outside the IDE, e.g. by a benchmark
+                Application application = ApplicationManager.getApplication();
+                if (application != null) {
+                    Disposer.register(application, this);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!stopped) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS));
+            drain();
+        }
+        // the records queued until the writer was stopped
+        drain();
+    }
+
+    // stop the writer and wait for it to write the records still queued
+    @Override
+    public void dispose() {
+        stopped = true;
+        Thread writer = thread;
+        if (writer == null) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            LOG.warn("The API chain report writer did not stop within " + STOP_TIMEOUT_MILLIS + " ms, " + queued.get() + " report(s) may be lost");
+        }
+    }
+
+    // write every queued record, each output is opened once per batch
+    private void drain() {
+        ArrayList<Record> batch = new ArrayList<>();
+        Record record;
+        while ((record = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(record);
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            LOG.warn(lost + " API chain(s) not reported, the report writer could not keep up");
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            LOG.warn("Cannot create the API chain report directory " + directory, e);
+            return;
+        }
+        switch (format) {
+            case JSONL:
+                writeJsonLines(directory.resolve(JSONL_STREAM), batch);
+                break;
+            case BINARY:
+                writeBinary(directory.resolve(BINARY_STREAM), batch);
+                break;
+            default:
+                writeText(batch);
+        }
+    }
+
+    // append the chains of every file to its own report
+    private void writeText(List<Record> batch) {
+        LinkedHashMap<String, List<Record>> byFile = new LinkedHashMap<>();
+        for (Record record : batch) {
+            byFile.computeIfAbsent(record.getFileName(), k -> new ArrayList<>()).add(record);
+        }
+        for (Map.Entry<String, List<Record>> entry : byFile.entrySet()) {
+            Path report = directory.resolve(entry.getKey() + ".txt");
+            try (BufferedWriter out = Files.newBufferedWriter(report, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Record record : entry.getValue()) {
+                    out.write(record.toString());
+                    out.write(System.lineSeparator());
+                }
+            } catch (IOException e) {
+                LOG.warn("Cannot write the API chain report " + report, e);
+                continue;
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Wrote " + entry.getValue().size() + " API chain(s) to " + report);
+            }
+        }
+    }
+
+    private void writeJsonLines(Path stream, List<Record> batch) {
+        try (BufferedWriter out = Files.newBufferedWriter(stream, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Record record : batch) {
+                out.write(record.toJSON().toJSONString());
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot write the API chain stream " + stream, e);
+        }
+    }
+
+    private void writeBinary(Path stream, List<Record> batch) {
+        boolean created = !Files.exists(stream);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stream,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16))) {
+            if (created) {
+                out.writeInt(BINARY_MAGIC);
+                out.writeInt(BINARY_VERSION);
+            }
+            for (Record record : batch) {
+                record.writeTo(out);
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot write the API chain stream " + stream, e);
+        }
+    }
+
+    // an API chain: the argument at argumentIndex of the caller involves the callee
+    static final class Record implements InspectionResultCache.Report {
+
+        private final String path;
+        private final String method;
+        private final String caller;
+        private final String callee;
+        private final int argumentIndex;
+        private final int offset;
+        private final int argumentOffset;
+        private final int lineNumber;
+
+        // path is the path of the file, method is the function the caller belongs to, null if none,
+        // offsets are the start offsets in the file
+        Record(String path, String method, String caller, String callee, int argumentIndex, int offset, int argumentOffset, int lineNumber) {
+            this.path = path;
+            this.method = method;
+            this.caller = caller;
+            this.callee = callee;
+            this.argumentIndex = argumentIndex;
+            this.offset = offset;
+            this.argumentOffset = argumentOffset;
+            this.lineNumber = lineNumber;
+        }
+
+        // queue the record on the writer
+        @Override
+        public void write() {
+            getInstance().write(this);
+        }
+
+        private JSONObject toJSON() {
+            // keep the fields in the order of the binary record
+            JSONObject json = new JSONObject(true);
+            json.put("file", path);
+            json.put("method", method);
+            json.put("caller", caller);
+            json.put("callee", callee);
+            json.put("argumentIndex", argumentIndex);
+            json.put("offset", offset);
+            json.put("argumentOffset", argumentOffset);
+            json.put("line", lineNumber);
+            return json;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            byte[][] strings = {encode(path), encode(method), encode(caller), encode(callee)};
+            int length = 4 * 4;
+            for (byte[] string : strings) {
+                length += 4 + (string == null ? 0 : string.length);
+            }
+            out.writeInt(length);
+            for (byte[] string : strings) {
+                if (string == null) {
+                    out.writeInt(-1);
+                }
+                else {
+                    out.writeInt(string.length);
+                    out.write(string);
+                }
+            }
+            out.writeInt(argumentIndex);
+            out.writeInt(offset);
+            out.writeInt(argumentOffset);
+            out.writeInt(lineNumber);
+        }
+
+        // the record, its four strings and their characters
+        @Override
+        public long estimateBytes() {
+            long chars = length(path) + length(method) + length(caller) + length(callee);
+            return 40 + 4 * (24 + 16) + 2 * chars;
+        }
+
+        // the name of the file, which names its text report
+        private String getFileName() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        private static int length(String string) {
+            return string == null ? 0 : string.length();
+        }
+
+        private static byte[] encode(String string) {
+            return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+        }
+
+        // the line of the text report
+        @Override
+        public String toString() {
+            return caller + " -> " + callee + " in line " + lineNumber;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+This class maps a called method name to the constraints that apply to the call, already sorted by the kind of check.
+It is compiled once per ConstraintRegistry, so that an inspection does not have to look at constraints of other kinds
+or re-parse their check for every call
+ */
+
+public final class ConstraintDispatch {
+
+    private final HashMap<String, Entry> entries = new HashMap<>();
+
+    ConstraintDispatch(List<APIConstraint> constraints) {
+        for (APIConstraint constraint : constraints) {
+            String start = constraint.getStart();
+            String end = constraint.getEnd();
+            String check = constraint.getCheck();
+            if (check == null) {
+                continue;
+            }
+            String conditionOperator = conditionChecking(check);
+
+            // precede is checked at its end, every other check at its start
+            if (end != null && check.equals("precede")) {
+                entry(end).precede.add(constraint);
+            }
+            if (start == null) {
+                continue;
+            }
+            if (end != null && check.equals("follow")) {
+                entry(start).follow.add(constraint);
+            }
+            if (conditionOperator != null) {
+                entry(start).conditions.add(new ConditionCheck(constraint, conditionOperator));
+            }
+            if (check.equals("within try-catch")) {
+                entry(start).tryCatch.add(constraint);
+            }
+            if (check.equals("char in String")) {
+                entry(start).charInString.add(constraint);
+            }
+        }
+        for (Entry entry : entries.values()) {
+            entry.freeze();
+        }
+    }
+
+    // the constraints that apply to a call of the given method, null if there is none
+    public Entry lookup(String methodName) {
+        return entries.get(methodName);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry entry(String methodName) {
+        return entries.computeIfAbsent(methodName, k -> new Entry());
+    }
+
+    // see if the check component of the constraint is a condition-checking and return corresponding operator
+    // otherwise, return null which means that it is not a condition checking
+    static String conditionChecking(String check) {
+        if (check.contains("<=")) {
+            return "<=";
+        }
+        else if (check.contains(">=")) {
+            return ">=";
+        }
+        else if (check.contains("==")) {
+            return "==";
+        }
+        else if (check.contains("<")) {
+            return "<";
+        }
+        else if (check.contains(">")) {
+            return ">";
+        }
+        return null;
+    }
+
+    // the constraints of one method name, by kind of check
+    public static final class Entry {
+
+        private List<APIConstraint> precede = new ArrayList<>();
+        private List<APIConstraint> follow = new ArrayList<>();
+        private List<ConditionCheck> conditions = new ArrayList<>();
+        private List<APIConstraint> tryCatch = new ArrayList<>();
+        private List<APIConstraint> charInString = new ArrayList<>();
+
+        // constraints whose start must be called before this method
+        public List<APIConstraint> getPrecede() {
+            return this.precede;
+        }
+
+        // constraints whose end must be called after this method
+        public List<APIConstraint> getFollow() {
+            return this.follow;
+        }
+
+        // condition-checkings that must guard a call of this method
+        public List<ConditionCheck> getConditions() {
+            return this.conditions;
+        }
+
+        // constraints that require this method to be called within a try-catch
+        public List<APIConstraint> getTryCatch() {
+            return this.tryCatch;
+        }
+
+        // constraints on the character passed to this method
+        public List<APIConstraint> getCharInString() {
+            return this.charInString;
+        }
+
+        private void freeze() {
+            precede = freeze(precede);
+            follow = freeze(follow);
+            conditions = freeze(conditions);
+            tryCatch = freeze(tryCatch);
+            charInString = freeze(charInString);
+        }
+
+        private static <T> List<T> freeze(List<T> list) {
+            return list.isEmpty() ? Collections.<T>emptyList() : Collections.unmodifiableList(list);
+        }
+    }
+
+    // a condition-checking constraint such as hasNext==true, split once into the condition to check and the state it must be in
+    public static final class ConditionCheck {
+
+        private final APIConstraint constraint;
+        private final String operator;
+        private final String conditionToBeCheck;
+        private final String stateToBe;
+
+        ConditionCheck(APIConstraint constraint, String operator) {
+            this.constraint = constraint;
+            this.operator = operator;
+            String[] sides = constraint.getCheck().split(operator);
+            this.conditionToBeCheck = sides[0];
+            this.stateToBe = sides.length > 1 ? sides[1] : "";
+        }
+
+        public APIConstraint getConstraint() {
+            return this.constraint;
+        }
+
+        public String getOperator() {
+            return this.operator;
+        }
+
+        public String getConditionToBeCheck() {
+            return this.conditionToBeCheck;
+        }
+
+        public String getStateToBe() {
+            return this.stateToBe;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Disposer;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/*
+This class watches the constraint file and rebuilds the ConstraintRegistry in the background whenever it changes.
+The new registry is published through an atomic swap, a file that cannot be parsed (e.g. half saved) is ignored
+and the previous registry stays in place, a deleted file brings back the bundled constraints.
+Watching stops when the application is disposed
+ */
+
+final class ConstraintFileWatcher implements Runnable {
+
+    private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.ConstraintFileWatcher");
+
+    // editors often save a file with several writes, wait until they settle before reloading
+    private static final long SETTLE_MILLIS = 200;
+
+    private static ConstraintFileWatcher current;
+    // stopWatching() is registered with the application once
+    private static boolean disposerRegistered;
+
+    private final Path file;
+    private final WatchService watchService;
+    private Thread thread;
+
+    private ConstraintFileWatcher(Path file, WatchService watchService) {
+        this.file = file;
+        this.watchService = watchService;
+    }
+
+    // start watching the given constraint file, replacing the file watched so far
+    static synchronized void watch(Path file) {
+        Path absolute = file.toAbsolutePath();
+        if (current != null) {
+            if (current.file.equals(absolute)) {
+                return;
+            }
+            current.stop();
+            current = null;
+        }
+
+        Path directory = absolute.getParent();
+        if (directory == null || !directory.toFile().isDirectory()) {
+            LOG.warn("Not watching API constraints, no directory for " + absolute);
+            return;
+        }
+        try {
+            WatchService watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            current = new ConstraintFileWatcher(absolute, watchService);
+        } catch (IOException e) {
+            LOG.warn("Cannot watch API constraints at " + absolute, e);
+            return;
+        }
+
+        Thread thread = new Thread(current, "APIKG constraint watcher");
+        thread.setDaemon(true);
+        current.thread = thread;
+        thread.start();
+
+        // none when the registry is used outside the IDE, e.g. by a benchmark
+        Application application = ApplicationManager.getApplication();
+        if (!disposerRegistered && application != null) {
+            Disposer.register(application, ConstraintFileWatcher::stopWatching);
+            disposerRegistered = true;
+        }
+    }
+
+    // stop watching the constraint file
+    static synchronized void stopWatching() {
+        if (current != null) {
+            current.stop();
+            current = null;
+        }
+    }
+
+    // closing the watch service ends the wait of the thread, the interrupt also ends a wait for writes to settle
+    private void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.warn(e);
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = isConstraintFileEvent(key);
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+
+                // swallow the rest of a burst of writes
+                while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isConstraintFileEvent(key);
+                    key.reset();
+                }
+                rebuild();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher stopped
+        }
+    }
+
+    private boolean isConstraintFileEvent(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            }
+            else if (file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void rebuild() {
+        if (!Files.exists(file)) {
+            ConstraintRegistry.publish(ConstraintRegistry.loadBundled());
+            return;
+        }
+        try {
+            ConstraintRegistry.publish(ConstraintRegistry.read(file));
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Keeping the previous API constraints, cannot read " + file, e);
+        }
+    }
+}
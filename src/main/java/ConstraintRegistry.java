@@ -0,0 +1,234 @@
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import KGdata.KGSnapshot;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.util.io.FileUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+This class holds all the API constraints obtained from KG, compiled by method name and kind of check (see ConstraintDispatch).
+A registry is immutable once built; the application-wide instance is loaded once and then swapped atomically
+whenever the constraint file changes (see ConstraintFileWatcher) or reload() is called, so a lookup never blocks on disk.
+The constraints are read from the constraint file, -Dapikg.constraints=<file> or by default apikg/constraint.json in
+the config directory of the IDE (PathManager.getConfigPath()), which is watched for changes. While there is no such
+file the constraint.json bundled with the plugin is used.
+The first load maps the KG snapshot built by the compileKGSnapshot gradle task and shipped in the plugin directory
+(-Dapikg.kg.snapshot=<file> to use another one) and only parses the constraints when there is no snapshot, it cannot
+be read or it is older than the constraint file. Only the constraints of the snapshot are used, they are copied out and
+the mapping is closed, the KG node records are not read at run time
+ */
+
+public final class ConstraintRegistry {
+
+    private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.ConstraintRegistry");
+
+    public static final String CONSTRAINT_PROPERTY = "apikg.constraints";
+    // the constraint file under the config directory of the IDE when -Dapikg.constraints is not set
+    static final String CONFIG_CONSTRAINT_PATH = "apikg/constraint.json";
+    static final String CONSTRAINT_RESOURCE = "/constraint.json";
+    public static final String SNAPSHOT_PROPERTY = "apikg.kg.snapshot";
+    // where prepareSandbox puts the KG snapshot, in the directory of the plugin
+    static final String PLUGIN_SNAPSHOT_PATH = "KGdata/kg.snapshot";
+
+    private static final ConstraintRegistry EMPTY = new ConstraintRegistry(Collections.<APIConstraint>emptyList());
+
+    private static final AtomicReference<ConstraintRegistry> INSTANCE = new AtomicReference<>();
+
+    // counts the swaps of the application-wide registry, for results cached against its constraints
+    private static final SimpleModificationTracker MODIFICATIONS = new SimpleModificationTracker();
+
+    private final List<APIConstraint> constraints;
+    // start and end lookups compiled by kind of check, for the per-call dispatch of the inspections
+    private final ConstraintDispatch dispatch;
+
+    private ConstraintRegistry(List<APIConstraint> constraints) {
+        this.constraints = Collections.unmodifiableList(new ArrayList<>(constraints));
+        this.dispatch = new ConstraintDispatch(this.constraints);
+    }
+
+    // get the application-wide registry, loading it on first use
+    // callers should keep the returned snapshot for a whole inspection pass so that they see consistent constraints
+    public static ConstraintRegistry getInstance() {
+        ConstraintRegistry registry = INSTANCE.get();
+        if (registry == null) {
+            synchronized (ConstraintRegistry.class) {
+                registry = INSTANCE.get();
+                if (registry == null) {
+                    Path constraintFile = getConstraintFile();
+                    registry = loadInitial(getSnapshotFile(), constraintFile);
+                    INSTANCE.set(registry);
+                    ConstraintFileWatcher.watch(constraintFile);
+                }
+            }
+        }
+        return registry;
+    }
+
+    // the file given with -Dapikg.constraints, otherwise the one in the config directory, which may not exist yet
+    private static Path getConstraintFile() {
+        String path = System.getProperty(CONSTRAINT_PROPERTY);
+        if (path != null) {
+            return Paths.get(path);
+        }
+        Path file = Paths.get(PathManager.getConfigPath(), CONFIG_CONSTRAINT_PATH);
+        // the directory has to exist to be watched, so that a constraint file saved there later is picked up
+        try {
+            Files.createDirectories(file.getParent());
+        } catch (IOException e) {
+            LOG.warn("Cannot create the API constraint directory " + file.getParent(), e);
+        }
+        return file;
+    }
+
+    // the snapshot given with -Dapikg.kg.snapshot, otherwise the one shipped with the plugin, null if the plugin has no directory
+    private static Path getSnapshotFile() {
+        String path = System.getProperty(SNAPSHOT_PROPERTY);
+        if (path != null) {
+            return Paths.get(path);
+        }
+        // the plugin classes are in <plugin directory>/lib/<plugin jar>
+        String jar = PathManager.getJarPathForClass(ConstraintRegistry.class);
+        Path lib = (jar == null) ? null : Paths.get(jar).getParent();
+        Path plugin = (lib == null) ? null : lib.getParent();
+        return (plugin == null) ? null : plugin.resolve(PLUGIN_SNAPSHOT_PATH);
+    }
+
+    // the registry of the KG snapshot if it is at least as new as the constraint file, otherwise of the constraints
+    private static ConstraintRegistry loadInitial(Path snapshot, Path constraintFile) {
+        try {
+            if (snapshot != null && Files.isRegularFile(snapshot) && (!Files.exists(constraintFile)
+                    || Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(constraintFile)) >= 0)) {
+                try (KGSnapshot kg = KGSnapshot.open(snapshot)) {
+                    ConstraintRegistry registry = fromSnapshot(kg);
+                    LOG.info("API constraints loaded from the KG snapshot " + snapshot);
+                    return registry;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Cannot read the KG snapshot " + snapshot + ", reading the API constraints", e);
+        }
+        return loadConstraints(constraintFile);
+    }
+
+    // re-read the constraints and replace the application-wide registry
+    public static ConstraintRegistry reload() {
+        Path constraintFile = getConstraintFile();
+        ConstraintRegistry registry = loadConstraints(constraintFile);
+        publish(registry);
+        ConstraintFileWatcher.watch(constraintFile);
+        return registry;
+    }
+
+    // build a registry from the constraint file, or from the bundled constraints while there is no such file
+    static ConstraintRegistry loadConstraints(Path constraintFile) {
+        return Files.exists(constraintFile) ? load(constraintFile.toString()) : loadBundled();
+    }
+
+    // re-read the given constraint file, replace the application-wide registry and watch that file from now on
+    public static ConstraintRegistry reload(String path) {
+        ConstraintRegistry registry = load(path);
+        publish(registry);
+        ConstraintFileWatcher.watch(Paths.get(path));
+        return registry;
+    }
+
+    // swap in a new application-wide registry; lookups already holding the old one keep using it
+    static void publish(ConstraintRegistry registry) {
+        ConstraintRegistry previous = INSTANCE.getAndSet(registry);
+        MODIFICATIONS.incModificationCount();
+        LOG.info("API constraints updated: " + (previous == null ? 0 : previous.size()) + " -> " + registry.size());
+    }
+
+    // changes whenever the application-wide registry is replaced
+    public static ModificationTracker getModificationTracker() {
+        return MODIFICATIONS;
+    }
+
+    // build a registry from a constraint file; an unreadable or malformed file gives an empty registry
+    public static ConstraintRegistry load(String path) {
+        try {
+            return read(Paths.get(path));
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Cannot read API constraints from " + path, e);
+            return EMPTY;
+        }
+    }
+
+    // build a registry from the constraint.json bundled with the plugin; a missing or malformed one gives an empty registry
+    static ConstraintRegistry loadBundled() {
+        try (InputStream in = ConstraintRegistry.class.getResourceAsStream(CONSTRAINT_RESOURCE)) {
+            if (in == null) {
+                LOG.warn("No API constraints bundled at " + CONSTRAINT_RESOURCE);
+                return EMPTY;
+            }
+            return parse(new String(FileUtil.loadBytes(in), StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Cannot read the bundled API constraints", e);
+            return EMPTY;
+        }
+    }
+
+    // build a registry from a constraint file, failing if it cannot be read or parsed
+    static ConstraintRegistry read(Path path) throws IOException {
+        return parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    // build a registry from the content of a constraint file
+    public static ConstraintRegistry parse(String json) {
+        JSONObject jobj = JSON.parseObject(json);
+        JSONArray nodes = jobj.getJSONArray("constraint");
+        ArrayList<APIConstraint> constraints = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            JSONObject key = nodes.getJSONObject(i);
+            String start = key.getString("start");
+            String end = key.getString("end");
+            JSONObject constraint = key.getJSONObject("constraint");
+            String check = constraint.getString("check");
+            String violation = constraint.getString("Violation");
+            String desc = constraint.getString("Desc");
+            // the declaring classes are optional, a constraint without them matches calls by name only
+            String startClass = key.getString("startClass");
+            String endClass = key.getString("endClass");
+            constraints.add(new APIConstraint(start, end, check, violation, desc, startClass, endClass));
+        }
+        return new ConstraintRegistry(constraints);
+    }
+
+    // build a registry from the constraints compiled into a KG snapshot
+    public static ConstraintRegistry fromSnapshot(KGSnapshot snapshot) {
+        ArrayList<APIConstraint> constraints = new ArrayList<>();
+        for (int i = 0; i < snapshot.getConstraintCount(); i++) {
+            constraints.add(new APIConstraint(snapshot.getConstraintStart(i), snapshot.getConstraintEnd(i),
+                    snapshot.getConstraintCheck(i), snapshot.getConstraintViolation(i), snapshot.getConstraintDesc(i),
+                    snapshot.getConstraintStartClass(i), snapshot.getConstraintEndClass(i)));
+        }
+        return new ConstraintRegistry(constraints);
+    }
+
+    // the constraints of every method name, compiled by kind of check
+    public ConstraintDispatch getDispatch() {
+        return dispatch;
+    }
+
+    public List<APIConstraint> getAllConstraints() {
+        return constraints;
+    }
+
+    public int size() {
+        return constraints.size();
+    }
+}
@@ -0,0 +1,302 @@
+import com.intellij.codeInspection.InspectionManager;
+import com.intellij.codeInspection.ProblemDescriptor;
+import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiComment;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiElementVisitor;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiWhiteSpace;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/*
+This class keeps the problems an inspection found in a file, so that the daemon replays them instead of analysing
+a file that has not changed since the last pass.
+The problems of a file are recomputed when the file is modified, when the structure of any Java class changes
+(the class of a call may resolve differently) or when the API constraints are reloaded.
+An inspection whose analysis of a method does not depend on the rest of the file can also be cached per method:
+the problems of a method are then kept on the method with a hash of its tokens, and an edit only re-analyses
+the methods whose tokens changed.
+Reports an analysis writes outside the IDE are kept with its problems and only written from the visitor, once per state
+of the file: an analysis that is cancelled, run again concurrently or run in the other mode writes nothing more.
+The cached problems do not keep the reports, they are dropped as soon as the visitor has written or skipped them
+ */
+
+public final class InspectionResultCache {
+
+    private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.InspectionResultCache");
+
+    private final String inspectionName;
+    private final boolean perMethod;
+    private final Key<CachedValue<Findings>> onTheFlyProblems;
+    private final Key<CachedValue<Findings>> batchProblems;
+    private final Key<MethodProblems> onTheFlyMethodProblems;
+    private final Key<MethodProblems> batchMethodProblems;
+    // the state of the file whose reports were last written, shared by both modes
+    private final Key<Long> reportedStamp;
+    // estimated heap held by reports found but not yet written or skipped
+    private final AtomicLong pendingReportBytes = new AtomicLong();
+
+    // perMethod: the analysis only looks at the method it is run over, so each method can be analysed and cached on its own
+    public InspectionResultCache(String inspectionName, boolean perMethod) {
+        this.inspectionName = inspectionName;
+        this.perMethod = perMethod;
+        // on-the-fly and batch descriptors are created differently, so each mode has its own value
+        this.onTheFlyProblems = Key.create(inspectionName + ".ON_THE_FLY_PROBLEMS");
+        this.batchProblems = Key.create(inspectionName + ".BATCH_PROBLEMS");
+        this.onTheFlyMethodProblems = Key.create(inspectionName + ".ON_THE_FLY_METHOD_PROBLEMS");
+        this.batchMethodProblems = Key.create(inspectionName + ".BATCH_METHOD_PROBLEMS");
+        this.reportedStamp = Key.create(inspectionName + ".REPORTED_STAMP");
+    }
+
+    // a report an analysis writes outside the IDE
+    public interface Report {
+
+        void write();
+
+        // estimated heap held by the report, in bytes
+        long estimateBytes();
+    }
+
+    // a visitor of an analysis that also counts its detections and has reports to write, besides the problems it registers
+    public abstract static class AnalysisVisitor extends JavaElementVisitor {
+
+        // the number of detections run so far, logged with the result of the file
+        public int getDetections() {
+            return 0;
+        }
+
+        // the reports found so far
+        public List<Report> getReports() {
+            return Collections.emptyList();
+        }
+    }
+
+    // a visitor that registers the problems of the file when the file itself is visited, after all its elements
+    // analysis builds the visitor of the inspection, it is only run over the file when there is no valid cached result
+    public PsiElementVisitor buildVisitor(ProblemsHolder holder, boolean isOnTheFly, Function<ProblemsHolder, PsiElementVisitor> analysis) {
+        return new PsiElementVisitor() {
+            @Override
+            public void visitFile(PsiFile file) {
+                // taken before the analysis, a change while it runs can only get the reports written again
+                long stamp = getStamp(file);
+                Findings findings = getFindings(file, holder.getManager(), isOnTheFly, analysis);
+                List<Report> reports = findings.takeReports();
+                if (!reports.isEmpty() && markReported(file, stamp)) {
+                    for (Report report : reports) {
+                        report.write();
+                    }
+                }
+                for (ProblemDescriptor problem : findings.problems) {
+                    holder.registerProblem(problem);
+                }
+            }
+        };
+    }
+
+    private Findings getFindings(PsiFile file, InspectionManager manager, boolean isOnTheFly, Function<ProblemsHolder, PsiElementVisitor> analysis) {
+        return CachedValuesManager.getCachedValue(file, isOnTheFly ? onTheFlyProblems : batchProblems, () -> {
+            Findings findings = perMethod
+                    ? getMethodProblems(file, manager, isOnTheFly, analysis)
+                    : analyse(file, file, manager, isOnTheFly, analysis);
+            return CachedValueProvider.Result.create(findings, file, PsiModificationTracker.JAVA_STRUCTURE_MODIFICATION_COUNT,
+                    ConstraintRegistry.getModificationTracker());
+        });
+    }
+
+    // a count that changes whenever the cached findings of the file become invalid
+    private static long getStamp(PsiFile file) {
+        return file.getModificationStamp()
+                + PsiModificationTracker.SERVICE.getInstance(file.getProject()).getJavaStructureModificationCount()
+                + ConstraintRegistry.getModificationTracker().getModificationCount();
+    }
+
+    // estimated heap held by the reports of analyses that the visitor has not written or skipped yet
+    public long getPendingReportBytes() {
+        return pendingReportBytes.get();
+    }
+
+    // true for the first caller only for each state of the file, whatever the mode and thread
+    private boolean markReported(PsiFile file, long stamp) {
+        synchronized (reportedStamp) {
+            Long reported = file.getUserData(reportedStamp);
+            if (reported != null && reported == stamp) {
+                return false;
+            }
+            file.putUserData(reportedStamp, stamp);
+            return true;
+        }
+    }
+
+    // merge the problems of every method of the file, re-analysing only the methods changed since they were cached
+    private Findings getMethodProblems(PsiFile file, InspectionManager manager, boolean isOnTheFly, Function<ProblemsHolder, PsiElementVisitor> analysis) {
+        Key<MethodProblems> key = isOnTheFly ? onTheFlyMethodProblems : batchMethodProblems;
+        // problems also depend on the classes calls resolve to and on the constraints, not only on the tokens of the method
+        long stamp = PsiModificationTracker.SERVICE.getInstance(file.getProject()).getJavaStructureModificationCount()
+                + ConstraintRegistry.getModificationTracker().getModificationCount();
+
+        ArrayList<ProblemDescriptor> problems = new ArrayList<>();
+        ArrayList<Report> reports = new ArrayList<>();
+        int detections = 0;
+        int analysed = 0;
+        List<PsiMethod> methods = getOutermostMethods(file);
+        for (PsiMethod method : methods) {
+            long hash = structuralHash(method);
+            MethodProblems cached = method.getUserData(key);
+            if (cached == null || cached.hash != hash || cached.stamp != stamp) {
+                cached = new MethodProblems(hash, stamp, analyse(method, file, manager, isOnTheFly, analysis));
+                method.putUserData(key, cached);
+                analysed++;
+            }
+            problems.addAll(cached.findings.problems);
+            // a method is only reported once, when it has been analysed
+            reports.addAll(cached.findings.takeReports());
+            detections += cached.findings.detections;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(inspectionName + ": " + file.getName() + ": " + detections + " detections, analysed " + analysed + " of "
+                    + methods.size() + " methods");
+        }
+        return new Findings(problems, reports, detections, pendingReportBytes);
+    }
+
+    // run the visitor of the inspection over the element and collect the problems it registers and its reports
+    private Findings analyse(PsiElement element, PsiFile file, InspectionManager manager, boolean isOnTheFly, Function<ProblemsHolder, PsiElementVisitor> analysis) {
+        ProblemsHolder holder = new ProblemsHolder(manager, file, isOnTheFly);
+        PsiElementVisitor visitor = analysis.apply(holder);
+        acceptPostOrder(element, visitor);
+        if (!(visitor instanceof AnalysisVisitor)) {
+            return new Findings(holder.getResults(), Collections.<Report>emptyList(), 0, pendingReportBytes);
+        }
+        AnalysisVisitor analysisVisitor = (AnalysisVisitor) visitor;
+        return new Findings(holder.getResults(), analysisVisitor.getReports(), analysisVisitor.getDetections(), pendingReportBytes);
+    }
+
+    // the methods of the file that are not nested in another method, e.g. not the methods of an anonymous class in a method
+    private static List<PsiMethod> getOutermostMethods(PsiFile file) {
+        ArrayList<PsiMethod> methods = new ArrayList<>();
+        ArrayDeque<PsiElement> stack = new ArrayDeque<>();
+        stack.push(file);
+        while (!stack.isEmpty()) {
+            PsiElement element = stack.pop();
+            if (element instanceof PsiMethod) {
+                methods.add((PsiMethod) element);
+                continue;
+            }
+            for (PsiElement child = element.getLastChild(); child != null; child = child.getPrevSibling()) {
+                stack.push(child);
+            }
+        }
+        return methods;
+    }
+
+    // a hash of the tokens of the method, whitespace and comments only count by their line breaks
+    // so that reformatting a line does not re-analyse the method, the call order is checked by line number
+    private static long structuralHash(PsiMethod method) {
+        long[] hash = {1};
+        acceptPostOrder(method, new PsiElementVisitor() {
+            @Override
+            public void visitElement(PsiElement element) {
+                if (element.getFirstChild() != null) {
+                    return;
+                }
+                if (element instanceof PsiWhiteSpace || element instanceof PsiComment) {
+                    int lineBreaks = StringUtil.countNewLines(element.getText());
+                    if (lineBreaks > 0) {
+                        hash[0] = hash[0] * 1000003L + lineBreaks;
+                    }
+                }
+                else {
+                    hash[0] = hash[0] * 1000003L + element.getText().hashCode();
+                }
+            }
+        });
+        return hash[0];
+    }
+
+    // visit every element under the root children first, as the inspection engine does, the root itself last
+    // the walk follows the parent and sibling links, so a deeply nested expression cannot overflow the stack
+    private static void acceptPostOrder(PsiElement root, PsiElementVisitor visitor) {
+        PsiElement element = root;
+        while (true) {
+            for (PsiElement child = element.getFirstChild(); child != null; child = child.getFirstChild()) {
+                element = child;
+            }
+            while (true) {
+                element.accept(visitor);
+                if (element == root) {
+                    return;
+                }
+                PsiElement next = element.getNextSibling();
+                if (next != null) {
+                    element = next;
+                    break;
+                }
+                element = element.getParent();
+            }
+        }
+    }
+
+    // the problems, reports and detection count of one analysis, or merged for a file
+    private static final class Findings {
+
+        private final List<ProblemDescriptor> problems;
+        // emptied by the first takeReports()
+        private final AtomicReference<List<Report>> reports;
+        private final int detections;
+        // counts the reports until they are taken
+        private final AtomicLong pendingBytes;
+
+        private Findings(List<ProblemDescriptor> problems, List<Report> reports, int detections, AtomicLong pendingBytes) {
+            this.problems = Collections.unmodifiableList(new ArrayList<>(problems));
+            this.reports = new AtomicReference<>(Collections.unmodifiableList(new ArrayList<>(reports)));
+            this.detections = detections;
+            this.pendingBytes = pendingBytes;
+            pendingBytes.addAndGet(estimateBytes(reports));
+        }
+
+        // the reports for the first caller, nothing for the others
+        private List<Report> takeReports() {
+            List<Report> taken = reports.getAndSet(Collections.<Report>emptyList());
+            pendingBytes.addAndGet(-estimateBytes(taken));
+            return taken;
+        }
+
+        private static long estimateBytes(List<Report> reports) {
+            long bytes = 0;
+            for (Report report : reports) {
+                bytes += report.estimateBytes();
+            }
+            return bytes;
+        }
+    }
+
+    // the findings of a method, with what they were computed from
+    private static final class MethodProblems {
+
+        private final long hash;
+        private final long stamp;
+        private final Findings findings;
+
+        private MethodProblems(long hash, long stamp, Findings findings) {
+            this.hash = hash;
+            this.stamp = stamp;
+            this.findings = findings;
+        }
+    }
+}
@@ -1,4 +1,6 @@
 import ASTtriplet.ASTtriplet;
+import ASTtriplet.TripletIndex;
+import ASTtriplet.Relation;
 import com.intellij.codeInspection.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
@@ -7,11 +9,17 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 
 public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
     private static final Logger LOG = Logger.getInstance(KGInspection.class);
     private final CriQuickFix myQuickFix = new CriQuickFix();
 
+    // problems found by the last analysis of each file, replayed while the file is unchanged
+    private static final InspectionResultCache RESULTS = new InspectionResultCache("KGInspection", true);
+
     // Defines the text of the quick fix intention
     public static final String QUICK_FIX_NAME = "SDK: This is a warning! Use KG to fix this!";
 
@@ -41,66 +49,6 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
     static final String WHILE_BODY = "WhileBody";
     static final String WHILE_CONDITION = "WhileCondition";
 
-
-    // triplet counting
-    static int id = 0;
-    static int lowest_root_id = 0;
-    static int next_available_id = 0;
-
-    static int try_lowest_rootID = 0;
-    static int try_next_available_id = 0;
-
-    static int if_next_available_id;
-
-    static int rootID = -1;
-
-//    static PsiReferenceExpressionStatement potential_bad_line = null;
-    static PsiExpressionStatement potential_bad_line;
-    static PsiReferenceExpression jpanel_add_bad_line;
-    static PsiReferenceExpression jpanel_remove_bad_line;
-    static PsiReferenceExpression iterator_next_bad_line;
-    static PsiReferenceExpression iterator_remove_bad_line;
-    static PsiReferenceExpression charAt_bad_line;
-    static PsiReferenceExpression char_At_indexOf_bad_line;
-    static PsiReferenceExpression char_At_substring_indexOf_bad_line;
-    static PsiReferenceExpression char_At_substring_larger_bad_line;
-    static PsiReferenceExpression char_At_substring_negative_bad_line;
-    static PsiReferenceExpression char_At_substring_negative_complex_bad_line;
-
-
-    static PsiDeclarationStatement filereader_exist_bad_line;
-    static PsiDeclarationStatement filereader_directory_badline;
-    static PsiDeclarationStatement potential_filereader_try_bad_line;
-    static PsiDeclarationStatement filereader_try_bad_line;
-
-
-    static PsiReferenceExpression read_bad_line;
-
-
-
-    public static final String NEW_FILE_WARNING_1 = "1）Missing state checking: file.isDirectory() = true;\nif violated, " +
-            "throws FileNotFoundException;";
-
-    public static final String NEW_FILE_WARNING_2 = "2) Missing exception handling: FileNotFoundException \n" +
-            "[trigger - the named file for some reason cannot be opened]";
-    boolean show_New_File_Warning = false;
-
-    public static final String READ_WARNING = "Missing exception handling: IOException \n [trigger - an IO error occurs]";
-    boolean show_Read_Warning = false;
-
-    public static final String JPANEL_WARNING_ADD = "Missing call: validate() should be called after add()";
-    public static final String JPANEL_WARNING_REMOVE = "Missing call: validate() should be called after remove()";
-    public static final String ITERATORPATTERN_WARNING_HASNEXT = "Missing state checking: hasNext() should be true; \n [if violated, throw NoSuchElementException]";
-    public static final String ITERATORPATTERN_WARNING_REMOVE = "Missing call: next() should precede remove(); ";
-    public static final String INDEXOF_CONSTRAINT_WARNING = "Return -1;\n [trigger - the character does not occur]";
-    public static final String SUBSTRING_INDEXOF_WARNING = "Missing state checking: indexOf should not be -1;  \n [if violated, throw IndexOutOfBoundsException]";
-    public static final String SUBSTRING_LARGER_WARNING = "Missing state checking: index should not be larger than the length of this String object;  \n [if violated, throw IndexOutOfBoundsException]";
-    public static final String SUBSTRING_NEGATIVE_WARNING = "Missing state checking: index should not be negative; \n [if violated, throw IndexOutOfBoundsException]";
-    public static final String FILE_CHECK_WARNING = "Missing state checking: exists() should be true; \n [if violated, throw FileNotFoundException]";
-    public static final String DIRECTORY_CHECK_WARNING = "Missing state checking: isDirectory should not be true; \n [if violated, throw FileNotFoundException]";
-    public static final String FILEREADER_TRY_WARNING = "Missing exception handling: FileNotFoundException; \n [trigger - the named file for some reason cannot be opened";
-    public static final String READ_TRY_WARNING = "Missing exception handling: IOException; \n [trigger - an IO error occurs]";
-
     /**
      * This method is overridden to provide a custom visitor
      * that inspects AST/PSI Tree from Method
@@ -114,6 +62,13 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
     @NotNull
     @Override
     public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, boolean isOnTheFly) {
+        return RESULTS.buildVisitor(holder, isOnTheFly, this::buildAnalysisVisitor);
+    }
+
+    // the visitor that analyses a whole file, it is only run when the file has no cached problems
+    private PsiElementVisitor buildAnalysisVisitor(final ProblemsHolder holder) {
+        // the rules of the current API constraints, compiled once and shared by all the visitors
+        final TripletRuleEngine ruleEngine = TripletRuleEngine.forRegistry(ConstraintRegistry.getInstance());
         return new JavaElementVisitor() {
 
             /**
@@ -124,58 +79,62 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
             @NonNls
             private final String DESCRIPTION_TEMPLATE = "SDK inspection using KG!";
 
+            // reused for the debug dump of every method visited by this visitor
+            private final StringBuilder dump = new StringBuilder();
+
 
             // evaluate from method
             @Override
             public void visitMethod(PsiMethod method) {
                 super.visitMethod(method);
 
-                // create a list to store all the triplets in this METHOD
-                ArrayList<ASTtriplet> astTriplets = new ArrayList<ASTtriplet>();
+                // ID counters, triplet table and bad lines of this method only, never shared with another method or file
+                // the text form of the triplets is only built when they are dumped
+                TripletBuilderContext ctx = new TripletBuilderContext(LOG.isDebugEnabled());
 
                 // GET method condition
                 String methodName = method.getName();
 
-                // GET method return type
-                String methodType = method.getReturnType().getPresentableText();
-
-                // GET method parameter and its type
-                // create a list to store parameters of the method
-                ArrayList<String> parameter_list = new ArrayList<>();
-                // create a list to store parameters' types of the method
-                ArrayList<String> parameterType_list = new ArrayList<>();
-
-                //check if method has parameters
-                if (method.hasParameters()) {
-                    PsiParameter[] parameters = method.getParameterList().getParameters();
-                    for (int i = 0; i < parameters.length; i++) {
-                        String parameterName = parameters[i].getName();
-                        String parameterType = parameters[i].getType().getPresentableText();
-                        parameter_list.add(parameterName);
-                        parameterType_list.add(parameterType);
-                    }
-                }
-                // no parameters put UNK
-                else {
-                    parameter_list.add("UNK");
-                    parameterType_list.add("UNK");
-                }
-
-
                 // Triplet format: <{Name:condition, Return_Type:void, parameter:[], parameter_Type:[]},
                 // {Body: next_triplet},
                 // {relation:StatementType}>
-                ASTtriplet method_astTriplet = new ASTtriplet(id++);
+                int method_row = ctx.triplet(ctx.id++);
                 // record first entity
-                method_astTriplet.first_entity.add("Name: " + methodName);
-                method_astTriplet.first_entity.add("Return_Type: " + methodType);
-                method_astTriplet.first_entity.add("Parameter(s): " + parameter_list.toString());
-                method_astTriplet.first_entity.add("Parameter_Type: " + parameterType_list.toString());
+                ctx.head(method_row, "Name", methodName);
+                // the return type and the parameters are not read by any rule, only dumped
+                if (ctx.isDumping()) {
+                    // GET method return type
+                    String methodType = method.getReturnType().getPresentableText();
+
+                    // GET method parameter and its type
+                    // create a list to store parameters of the method
+                    ArrayList<String> parameter_list = new ArrayList<>();
+                    // create a list to store parameters' types of the method
+                    ArrayList<String> parameterType_list = new ArrayList<>();
+
+                    //check if method has parameters
+                    if (method.hasParameters()) {
+                        PsiParameter[] parameters = method.getParameterList().getParameters();
+                        for (int i = 0; i < parameters.length; i++) {
+                            String parameterName = parameters[i].getName();
+                            String parameterType = parameters[i].getType().getPresentableText();
+                            parameter_list.add(parameterName);
+                            parameterType_list.add(parameterType);
+                        }
+                    }
+                    // no parameters put UNK
+                    else {
+                        parameter_list.add("UNK");
+                        parameterType_list.add("UNK");
+                    }
+                    ctx.head(method_row, "Return_Type", methodType);
+                    ctx.head(method_row, "Parameter(s)", parameter_list.toString());
+                    ctx.head(method_row, "Parameter_Type", parameterType_list.toString());
+                }
                 // record second entity
-                method_astTriplet.second_entity.add("Body: " + "triplet_" + (id));
+                ctx.tailLink(method_row, "Body", ctx.id);
                 // record third entity
-                method_astTriplet.third_entity.add("Relation: " + METHOD_DEFINITION);
-                astTriplets.add(method_astTriplet);
+                ctx.relation(method_row, Relation.METHOD_DEFINITION);
 
                 // body of the function
                 // check if there is a body first, to avoid NULL
@@ -184,155 +143,55 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     // get all the related_triplets
                     int bodyStatementCount = method.getBody().getStatementCount();
 
-                    ASTtriplet body_astTriplet = new ASTtriplet(id++);
-
-                    lowest_root_id = id;
-                    next_available_id = id + bodyStatementCount;
+                    int body_row = ctx.triplet(ctx.id++);
 
-                    // list that stores the related triplets
-                    ArrayList<String> related_triplets = new ArrayList<>();
-
-                    for (int i = 0; i < bodyStatementCount; i++) {
-                        related_triplets.add("triplet_" + (id + i));
-                    }
+                    ctx.lowest_root_id = ctx.id;
+                    ctx.next_available_id = ctx.id + bodyStatementCount;
 
                     // record body triplet
-                    body_astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-                    body_astTriplet.second_entity.add("End_entity: UNK");
-                    body_astTriplet.third_entity.add("Relation: " + METHOD_BODY);
-                    astTriplets.add(body_astTriplet);
+                    ctx.headLinks(body_row, "Related_triplets", ctx.id, bodyStatementCount);
+                    ctx.tail(body_row, "End_entity", "UNK");
+                    ctx.relation(body_row, Relation.METHOD_BODY);
 
                     // iterate the body statement
                     PsiStatement[] statements = method.getBody().getStatements();
                     for (int i = 0; i < statements.length; i++) {
                         PsiStatement statement = statements[i];
                         // IMPORTANT: always keep track the root ID
-                        rootID = lowest_root_id + i;
-                        whatStatement(astTriplets, statement);
+                        ctx.rootID = ctx.lowest_root_id + i;
+                        whatStatement(ctx, statement);
                     }
                 }
-                // reset id for next method
-                id = 0;
-                // print all the triplets of this method
-                for (ASTtriplet t : astTriplets) {
-                    System.out.println(t.toString());
-                }
-                System.out.println();
-                String case_name = getCase(astTriplets);
-                System.out.println("case is " + case_name);
-
-                boolean thereIsAProblem = checkConstraint(astTriplets, case_name);
-                System.out.println("there is a problem " + thereIsAProblem);
-
-                // this will register a problem, and display warning (perhaps suggests quickFix)
-                // the boolean variable should be set to true if a problem is detected, it should always be false otherwise
-                // change the variable to true if want to display the warning for testing
-//                boolean thereIsAProblem = false;
-                if (thereIsAProblem) {
-                    if (case_name.equals("jpanelWarning")) {
-                        ArrayList<String> jpanel_cases = checkJPanel(astTriplets, case_name);
-                        String problems = "";
-                        for (String c : jpanel_cases) {
-                            problems += c + " ";
-                        }
-                        System.out.println("problem(s) is " + problems);
-                        if (!jpanel_cases.isEmpty()) {
-                            for (String p : jpanel_cases) {
-                                if (p.equals("add")) {
-                                    holder.registerProblem(jpanel_add_bad_line, JPANEL_WARNING_ADD, myQuickFix);
-                                }
-                                else if (p.equals("remove")) {
-                                    holder.registerProblem(jpanel_remove_bad_line, JPANEL_WARNING_REMOVE, myQuickFix);
-                                }
-                            }
-                        }
+                // dump all the triplets of this method, only when debug logging is enabled for this inspection
+                if (ctx.isDumping()) {
+                    dump.setLength(0);
+                    dump.append(methodName).append(":\n");
+                    for (ASTtriplet t : ctx.getDump()) {
+                        t.appendTo(dump).append('\n');
                     }
-                    else if (case_name.equals("iteratorWarning")) {
-                        ArrayList<String> iterator_cases = checkiteratorPattern(astTriplets, case_name);
-                        String problems = "";
-                        for (String c : iterator_cases) {
-                            problems += c + " ";
-                        }
-                        System.out.println("problem(s) is " + problems);
-                        if (!problems.isEmpty()) {
-                            for (String p : iterator_cases) {
-                                if (p.equals("hasnext")) {
-                                    holder.registerProblem(iterator_next_bad_line, ITERATORPATTERN_WARNING_HASNEXT, myQuickFix);
-                                }
-                                else if (p.equals("remove")) {
-                                    holder.registerProblem(iterator_remove_bad_line, ITERATORPATTERN_WARNING_REMOVE, myQuickFix);
-
-                                }
-                            }
-                        }
-                    }
-                    else if (case_name.equals("stringWarning")) {
-                        ArrayList<String> charAt_cases = checkcharAt(astTriplets, case_name);
-                        String problems = "";
-                        for (String c : charAt_cases) {
-                            problems += c + " ";
-                        }
-                        System.out.println("problem(s) is " + problems);
-                        if (!problems.isEmpty()) {
-                            for (String p : charAt_cases) {
-                                if (p.equals("indexOf_constraint")) {
-                                    holder.registerProblem(char_At_indexOf_bad_line, INDEXOF_CONSTRAINT_WARNING, myQuickFix);
-                                }
-                                else if (p.equals("substring_negative")) {
-                                    holder.registerProblem(char_At_substring_negative_bad_line, SUBSTRING_NEGATIVE_WARNING, myQuickFix);
-                                }
-                                else if (p.equals("substring_indexOf_negative")) {
-                                    holder.registerProblem(char_At_substring_indexOf_bad_line, SUBSTRING_INDEXOF_WARNING, myQuickFix);
-                                }
-                                else if (p.equals("substring_larger")) {
-                                    holder.registerProblem(char_At_substring_larger_bad_line, SUBSTRING_LARGER_WARNING, myQuickFix);
-                                }
-                                else if (p.equals("substring_negative_complex")) {
-                                    holder.registerProblem(char_At_substring_negative_complex_bad_line, SUBSTRING_NEGATIVE_WARNING, myQuickFix);
-
-                                }
-                            }
+                    LOG.debug(dump.toString());
+                }
 
-                        }
-                    }
-                    else if (case_name.equals("filereaderWarning")) {
-                        ArrayList<String> cap_cases = checkCapability(astTriplets, case_name);
-                        String problems = "";
-                        for (String c : cap_cases) {
-                            problems += c + " ";
-                        }
-                        System.out.println("problem(s) is " + problems);
-                        if (!problems.isEmpty()) {
-                            for (String p : cap_cases) {
-                                if (p.equals("file")) {
-                                    holder.registerProblem(filereader_exist_bad_line, FILE_CHECK_WARNING, myQuickFix);
-                                }
-                                else if (p.equals("directory")) {
-                                    holder.registerProblem(filereader_directory_badline, DIRECTORY_CHECK_WARNING, myQuickFix);
-                                }
-                                else if (p.equals("filereader_try")) {
-                                    holder.registerProblem(filereader_try_bad_line, FILEREADER_TRY_WARNING , myQuickFix);
-                                }
-                                else if (p.equals("read_try")) {
-                                    holder.registerProblem(read_bad_line, READ_TRY_WARNING, myQuickFix);
-                                }
-                            }
-                        }
+                // match every API constraint against the triplets in one pass
+                TripletIndex tripletIndex = TripletIndex.build(ctx.buildTable());
+                List<TripletRuleEngine.Violation> violations = ruleEngine.match(tripletIndex);
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(violations.size() + " violation(s) in " + methodName);
+                }
+
+                // this will register a problem on the bad line of the call, and display warning (perhaps suggests quickFix)
+                HashSet<List<Object>> reported = new HashSet<>();
+                for (TripletRuleEngine.Violation violation : violations) {
+                    PsiElement bad_line = ctx.bad_lines.get(violation.getRow());
+                    // e.g. iterator.remove does not violate the constraints of Container.remove
+                    if (bad_line == null || !CallResolver.isDeclaredBy(bad_line, violation.getTriggerClass())) {
+                        continue;
                     }
-                    else if (case_name.equals("IGNROE THIS")) {
-                        String filetry_case = checkfiletry(astTriplets, case_name);
-                        if (filetry_case.equals("file")) {
-                            holder.registerProblem(filereader_exist_bad_line, FILE_CHECK_WARNING, myQuickFix);
-                        } else if (filetry_case.equals("directory")) {
-                            holder.registerProblem(filereader_directory_badline, DIRECTORY_CHECK_WARNING, myQuickFix);
-                        } else if (filetry_case.equals("filereader_try")) {
-                            holder.registerProblem(filereader_try_bad_line, FILEREADER_TRY_WARNING, myQuickFix);
-                        } else if (filetry_case.equals("read_try")) {
-                            holder.registerProblem(read_bad_line, READ_TRY_WARNING, myQuickFix);
-                        }
+                    // the calls of one declaration share a bad line, report it once
+                    if (reported.add(Arrays.<Object>asList(bad_line, violation.getMessage()))) {
+                        holder.registerProblem(bad_line, violation.getMessage(), myQuickFix);
                     }
                 }
-
             }
 
         };
@@ -341,52 +200,43 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
 
     // this function will be ONLY used once in the iterate BODY statement part
     // so the isRoot boolean must be set to true to ensure correct id being recorded
-    private static void whatStatement(ArrayList<ASTtriplet> astTriplets, PsiStatement statement) {
+    private static void whatStatement(TripletBuilderContext ctx, PsiStatement statement) {
         // check if the given statement is an Declaration statement
         if (statement instanceof PsiDeclarationStatement) {
 
             PsiDeclarationStatement declarationStatement = (PsiDeclarationStatement) statement;
             PsiElement[] declaredElements = declarationStatement.getDeclaredElements();
 
-            potential_filereader_try_bad_line = declarationStatement;
+            ctx.declaration = declarationStatement;
 
             for (int i=0; i<declaredElements.length; i++) {
                 PsiElement declaredElement = declaredElements[i];
                 PsiElement[] children = declaredElement.getChildren();
-                whatElement(astTriplets, children, DECLARATION_STMT, true);
+                whatElement(ctx, children, DECLARATION_STMT, true);
             }
+            // a later constructor call is not part of this declaration
+            ctx.declaration = null;
         }
         else if (statement instanceof PsiReturnStatement) {
             PsiReturnStatement returnStatement = (PsiReturnStatement) statement;
             PsiElement[] children = returnStatement.getChildren();
-            whatElement(astTriplets, children, RETURN_STMT, true);
+            whatElement(ctx, children, RETURN_STMT, true);
         }
         else if (statement instanceof PsiExpressionStatement) {
             PsiExpressionStatement psiExpressionStatement = (PsiExpressionStatement) statement;
             PsiElement[] expressions = psiExpressionStatement.getChildren();
-            whatElement(astTriplets, expressions, EXPRESSION_STMT, true);
-
-            potential_bad_line = psiExpressionStatement;
+            whatElement(ctx, expressions, EXPRESSION_STMT, true);
         }
         else if (statement instanceof PsiIfStatement) {
             // add if statement relation
             PsiIfStatement psiIfStatement = (PsiIfStatement) statement;
 
-            // list that stores the related triplets
-            ArrayList<String> related_triplets = new ArrayList<>();
+            ctx.if_next_available_id = ctx.next_available_id + 1;
 
-            for (int i = 0; i < 1; i++) {
-                related_triplets.add("triplet_" + (next_available_id + i));
-            }
-
-            if_next_available_id = next_available_id + 1;
-
-            ASTtriplet astTriplet;
-            astTriplet = new ASTtriplet(rootID++);
-            astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-            astTriplet.second_entity.add("End_entity: " + ELSE_SECTION);
-            astTriplet.third_entity.add("Relation: " + IF_STMT);
-            astTriplets.add(astTriplet);
+            int row = ctx.triplet(ctx.rootID++);
+            ctx.headLinks(row, "Related_triplets", ctx.next_available_id, 1);
+            ctx.tail(row, "End_entity", ELSE_SECTION);
+            ctx.relation(row, Relation.IF_STATEMENT);
 
             PsiExpression ifConditionStatement = psiIfStatement.getCondition();
             if (ifConditionStatement instanceof PsiBinaryExpression) {
@@ -398,13 +248,12 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 String ROperand = psiBinaryExpression.getROperand().getText();
                 String ROperand_type = psiBinaryExpression.getROperand().getType().getPresentableText();
 
-                astTriplet = new ASTtriplet(rootID++);
-                astTriplet.first_entity.add("Related_triplets: " + "triplet_" + if_next_available_id);
-                astTriplet.second_entity.add("LOperand: " + LOperand);
-                astTriplet.second_entity.add("Operation: " + operation);
-                astTriplet.second_entity.add("ROperand: " + ROperand);
-                astTriplet.third_entity.add("Relation: " + BINARY_EXPRESSION);
-                astTriplets.add(astTriplet);
+                row = ctx.triplet(ctx.rootID++);
+                ctx.headLink(row, "Related_triplets", ctx.if_next_available_id);
+                ctx.tail(row, "LOperand", LOperand);
+                ctx.tail(row, "Operation", operation);
+                ctx.tail(row, "ROperand", ROperand);
+                ctx.relation(row, Relation.BINARY_EXPRESSION);
 
                 PsiExpression psiBinaryExpressionLOperand = psiBinaryExpression.getLOperand();
                 if (psiBinaryExpressionLOperand instanceof PsiMethodCallExpression) {
@@ -412,7 +261,7 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     PsiReferenceExpression psiReferenceExpression = psiMethodCallExpression.getMethodExpression();
                     String referenceExp = psiReferenceExpression.getCanonicalText();
                     PsiExpression[] psiExpressionList = psiMethodCallExpression.getArgumentList().getExpressions();
-                    getArguments(astTriplets, psiExpressionList, referenceExp, IF_STMT, METHODCALL_EXPRESSION, false);
+                    getArguments(ctx, psiExpressionList, referenceExp, psiReferenceExpression, IF_STMT, METHODCALL_EXPRESSION, false);
                 }
             }
             else if (ifConditionStatement instanceof PsiMethodCallExpression) {
@@ -421,12 +270,12 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiReferenceExpression psiReferenceExpression = psiMethodCallExpression.getMethodExpression();
                 String referenceExp = psiReferenceExpression.getCanonicalText();
                 PsiExpression[] psiExpressionList = psiMethodCallExpression.getArgumentList().getExpressions();
-                astTriplet = new ASTtriplet(rootID++);
-                astTriplet.first_entity.add("ReferenceExpression: "+ referenceExp);
-                astTriplet.second_entity.add("Argument: " + "[]");
-                astTriplet.second_entity.add("Type: " + "[]");
-                astTriplet.third_entity.add("Relation: " + "IfCondition");
-                astTriplets.add(astTriplet);
+                row = ctx.triplet(ctx.rootID++);
+                ctx.badLine(row, psiReferenceExpression);
+                ctx.head(row, "ReferenceExpression", referenceExp);
+                ctx.tail(row, "Argument", "[]");
+                ctx.tail(row, "Type", "[]");
+                ctx.relation(row, Relation.IF_CONDITION);
 
             }
 
@@ -435,12 +284,6 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiBlockStatement psiBlockStatement = (PsiBlockStatement) thenBranch;
                 // there is something in then branch
                 if (!psiBlockStatement.getCodeBlock().isEmpty()) {
-                    int blockStatementCount = psiBlockStatement.getCodeBlock().getStatementCount();
-                    // list that stores the related triplets
-                    related_triplets = new ArrayList<>();
-                    for (int i = 0; i < blockStatementCount; i++) {
-                        related_triplets.add("triplet_" + (if_next_available_id + i));
-                    }
 
 //                    astTriplet = new ASTtriplet(rootID++);
 //                    astTriplet.first_entity.add("Related_triplets: " + "triplet_" + if_next_available_id);
@@ -449,12 +292,11 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
 //                    astTriplet.third_entity.add("Relation: " + BINARY_EXPRESSION);
 //                    astTriplets.add(astTriplet);
 
-                    astTriplet = new ASTtriplet(rootID++);
-                    astTriplet.first_entity.add("Related_triplets: " + "triplet_" + if_next_available_id);
-                    astTriplet.second_entity.add("End_entity: " + "UNK");
+                    row = ctx.triplet(ctx.rootID++);
+                    ctx.headLink(row, "Related_triplets", ctx.if_next_available_id);
+                    ctx.tail(row, "End_entity", "UNK");
 
-                    astTriplet.third_entity.add("Relation: " + "IfBody");
-                    astTriplets.add(astTriplet);
+                    ctx.relation(row, Relation.IF_BODY);
 
                     PsiStatement[] psiStatements = psiBlockStatement.getCodeBlock().getStatements();
                     for (PsiStatement psiStatement : psiStatements) {
@@ -466,14 +308,14 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
 //                                PsiReferenceExpression psiReferenceExpression = psiMethodCallExpression.getMethodExpression();
 //                                String referenceExp = psiReferenceExpression.getCanonicalText();
 //                                PsiExpression[] psiExpressionList = psiMethodCallExpression.getArgumentList().getExpressions();
-//                                getArguments(astTriplets, psiExpressionList, referenceExp, THEN_BRANCH, METHODCALL_EXPRESSION, false);
+//                                getArguments(ctx, psiExpressionList, referenceExp, THEN_BRANCH, METHODCALL_EXPRESSION, false);
 //                            }
 //                        }
                         if (psiStatement instanceof PsiDeclarationStatement) {
-                            whatStatement(astTriplets, psiStatement);
+                            whatStatement(ctx, psiStatement);
                         }
                         else if (psiStatement instanceof PsiExpressionStatement)
-                            whatStatement(astTriplets, psiStatement);
+                            whatStatement(ctx, psiStatement);
                     }
                 }
             }
@@ -483,11 +325,10 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     // TODO
                 }
                 else {
-                    astTriplet = new ASTtriplet(rootID++);
-                    astTriplet.first_entity.add("UNK");
-                    astTriplet.second_entity.add("UNK");
-                    astTriplet.third_entity.add("Relation: " + ELSE_SECTION);
-                    astTriplets.add(astTriplet);
+                    row = ctx.triplet(ctx.rootID++);
+                    ctx.head(row, "UNK", null);
+                    ctx.tail(row, "UNK", null);
+                    ctx.relation(row, Relation.ELSE_SECTION);
                 }
             }
         }
@@ -496,49 +337,34 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
             PsiTryStatement psiTryStatement = (PsiTryStatement) statement;
             int statementCount = psiTryStatement.getTryBlock().getStatementCount();
 
-            try_lowest_rootID = lowest_root_id;
-            try_next_available_id = next_available_id + statementCount;
+            ctx.try_lowest_rootID = ctx.lowest_root_id;
+            ctx.try_next_available_id = ctx.next_available_id + statementCount;
 
-            ASTtriplet try_astTriplet = new ASTtriplet(id++);
-
-            // list that stores the related triplets
-            ArrayList<String> related_triplets = new ArrayList<>();
-
-            for (int i=0; i<statementCount; i++) {
-                related_triplets.add("triplet_" + (id + i));
-            }
-
-            try_astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-            try_astTriplet.second_entity.add("End_entity: " + CATCH_SECTION);
-            try_astTriplet.third_entity.add("Relation: " + TRY_STATEMENT);
-            astTriplets.add(try_astTriplet);
+            int row = ctx.triplet(ctx.id++);
+            // the statements of the try block are the next triplets
+            ctx.headLinks(row, "Related_triplets", ctx.id, statementCount);
+            ctx.tail(row, "End_entity", CATCH_SECTION);
+            ctx.relation(row, Relation.TRY_STATEMENT);
 
             // get try block directly
             PsiElement[] statements = psiTryStatement.getTryBlock().getChildren();
-            whatElement(astTriplets, statements, TRY_STATEMENT, false);
+            whatElement(ctx, statements, TRY_STATEMENT, false);
+            // only the calls of the try block are guarded by it, not the ones of the catch sections
+            ctx.closeScope(row);
 
-            id = try_next_available_id;
+            ctx.id = ctx.try_next_available_id;
 
             PsiElement[] catchStmts = psiTryStatement.getChildren();
-            whatElement(astTriplets, catchStmts, CATCH_SECTION, false);
+            whatElement(ctx, catchStmts, CATCH_SECTION, false);
         }
         else if (statement instanceof PsiForStatement) {
 
             PsiForStatement psiForStatement = (PsiForStatement) statement;
 
-            // list that stores the related triplets
-            ArrayList<String> related_triplets = new ArrayList<>();
-
-            for (int i = 0; i < 4; i++) {
-                related_triplets.add("triplet_" + (next_available_id + i));
-            }
-
-            ASTtriplet astTriplet;
-            astTriplet = new ASTtriplet(rootID++);
-            astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-            astTriplet.second_entity.add("End_entity: " + "UNK");
-            astTriplet.third_entity.add("Relation: " + FOR_STATEMENT);
-            astTriplets.add(astTriplet);
+            int row = ctx.triplet(ctx.rootID++);
+            ctx.headLinks(row, "Related_triplets", ctx.next_available_id, 4);
+            ctx.tail(row, "End_entity", "UNK");
+            ctx.relation(row, Relation.FOR_STATEMENT);
 
             PsiStatement forStatementInitialization = psiForStatement.getInitialization();
 
@@ -561,12 +387,11 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                         literalExp = psiLiteralExpression.getText();
                     }
                 }
-                astTriplet = new ASTtriplet(next_available_id++);
-                astTriplet.first_entity.add(LITERAL_EXPRESSION + ": " + literalExp);
-                astTriplet.second_entity.add("Argument: " + identifierName);
-                astTriplet.second_entity.add("Type: " + type);
-                astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                astTriplets.add(astTriplet);
+                row = ctx.triplet(ctx.next_available_id++);
+                ctx.head(row, LITERAL_EXPRESSION, literalExp);
+                ctx.tail(row, "Argument", identifierName);
+                ctx.tail(row, "Type", type);
+                ctx.relation(row, Relation.DECLARATION_STATEMENT);
             }
 
             PsiExpression forStatementCondition = psiForStatement.getCondition();
@@ -579,13 +404,12 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 String ROperand_type = psiBinaryExpression.getROperand().getType().getPresentableText();
                 String operation = psiBinaryExpression.getOperationSign().getText();
 
-                astTriplet = new ASTtriplet(next_available_id++);
-                astTriplet.first_entity.add(BINARY_EXPRESSION + ": " + expression);
-                astTriplet.second_entity.add("LOperand: " + LOperand);
-                astTriplet.second_entity.add("Operation: " + operation);
-                astTriplet.second_entity.add("ROperand: " + ROperand);
-                astTriplet.third_entity.add("Relation: " + BINARY_EXPRESSION);
-                astTriplets.add(astTriplet);
+                row = ctx.triplet(ctx.next_available_id++);
+                ctx.head(row, BINARY_EXPRESSION, expression);
+                ctx.tail(row, "LOperand", LOperand);
+                ctx.tail(row, "Operation", operation);
+                ctx.tail(row, "ROperand", ROperand);
+                ctx.relation(row, Relation.BINARY_EXPRESSION);
             }
 
 
@@ -598,12 +422,11 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     String operand = psiPostfixExpression.getOperand().getText();
                     String operand_type = psiPostfixExpression.getOperand().getType().getPresentableText();
                     String operation = psiPostfixExpression.getOperationSign().getText();
-                    astTriplet = new ASTtriplet(next_available_id++);
-                    astTriplet.first_entity.add(POST_FIX_EXP + ": " + psiPostfixExpression.getText());
-                    astTriplet.second_entity.add("Lperand: " + operand);
-                    astTriplet.second_entity.add("Operation: " + operation);
-                    astTriplet.third_entity.add("Relation: " + POST_FIX_EXP);
-                    astTriplets.add(astTriplet);
+                    row = ctx.triplet(ctx.next_available_id++);
+                    ctx.head(row, POST_FIX_EXP, psiPostfixExpression.getText());
+                    ctx.tail(row, "Lperand", operand);
+                    ctx.tail(row, "Operation", operation);
+                    ctx.relation(row, Relation.POST_FIX_EXPRESSION);
                 }
             }
 
@@ -615,18 +438,11 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     PsiCodeBlock forBody = (PsiCodeBlock) element;
                     int forBodyCount = forBody.getStatementCount();
 
-                    // list that stores the related triplets
-                    related_triplets = new ArrayList<>();
-
-                    for (int i = 0; i < forBodyCount; i++) {
-                        related_triplets.add("triplet_" + (next_available_id + i + 1));
-                    }
-
-                    astTriplet = new ASTtriplet(next_available_id++);
-                    astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-                    astTriplet.second_entity.add("End_entity: " + "UNK");
-                    astTriplet.third_entity.add("Relation: " + FOR_BODY);
-                    astTriplets.add(astTriplet);
+                    // the statements of the body follow the body triplet
+                    row = ctx.triplet(ctx.next_available_id++);
+                    ctx.headLinks(row, "Related_triplets", ctx.next_available_id, forBodyCount);
+                    ctx.tail(row, "End_entity", "UNK");
+                    ctx.relation(row, Relation.FOR_BODY);
 
                     PsiStatement[] statements = forBody.getStatements();
                     for (PsiStatement psiStatement : statements) {
@@ -638,7 +454,7 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                                 PsiReferenceExpression psiReferenceExpression = psiMethodCallExpression.getMethodExpression();
                                 String referenceExp = psiReferenceExpression.getCanonicalText();
                                 PsiExpression[] psiExpressionList = psiMethodCallExpression.getArgumentList().getExpressions();
-                                getArguments(astTriplets, psiExpressionList, referenceExp, FOR_STATEMENT, METHODCALL_EXPRESSION, false);
+                                getArguments(ctx, psiExpressionList, referenceExp, psiReferenceExpression, FOR_STATEMENT, METHODCALL_EXPRESSION, false);
                             }
                         }
                     }
@@ -649,30 +465,21 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
 
             PsiWhileStatement psiWhileStatement = (PsiWhileStatement) statement;
 
-            // list that stores the related triplets
-            ArrayList<String> related_triplets = new ArrayList<>();
-
-            for (int i = 0; i < 2; i++) {
-                related_triplets.add("triplet_" + (next_available_id + i));
-            }
-
-            ASTtriplet astTriplet;
-            astTriplet = new ASTtriplet(rootID++);
-            astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-            astTriplet.second_entity.add("End_entity: " + "UNK");
-            astTriplet.third_entity.add("Relation: " + WHILE_STATEMENT);
-            astTriplets.add(astTriplet);
+            int row = ctx.triplet(ctx.rootID++);
+            ctx.headLinks(row, "Related_triplets", ctx.next_available_id, 2);
+            ctx.tail(row, "End_entity", "UNK");
+            ctx.relation(row, Relation.WHILE_STATEMENT);
 
             // get while conditions
             PsiExpression whileCondition = psiWhileStatement.getCondition();
             String condition = whileCondition.getText();
 
-            astTriplet = new ASTtriplet(next_available_id++);
-            astTriplet.first_entity.add(METHODCALL_EXPRESSION + ": " + condition);
-            astTriplet.second_entity.add("Argument: " + "UNK");
-            astTriplet.second_entity.add("Type: " + "UNK");
-            astTriplet.third_entity.add("Relation: " + WHILE_CONDITION);
-            astTriplets.add(astTriplet);
+            row = ctx.triplet(ctx.next_available_id++);
+            ctx.badLine(row, whileCondition);
+            ctx.head(row, METHODCALL_EXPRESSION, condition);
+            ctx.tail(row, "Argument", "UNK");
+            ctx.tail(row, "Type", "UNK");
+            ctx.relation(row, Relation.WHILE_CONDITION);
 
             // this will be block statement
             PsiStatement blockStatement = psiWhileStatement.getBody();
@@ -682,31 +489,23 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     PsiCodeBlock whileBody = (PsiCodeBlock) element;
                     int forBodyCount = whileBody.getStatementCount();
 
-                    // list that stores the related triplets
-                    related_triplets = new ArrayList<>();
-
-                    for (int i = 0; i < forBodyCount; i++) {
-                        related_triplets.add("triplet_" + (next_available_id + i + 1));
-                    }
-
-                    astTriplet = new ASTtriplet(next_available_id++);
-                    astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-                    astTriplet.second_entity.add("End_entity: " + "UNK");
-                    astTriplet.third_entity.add("Relation: " + WHILE_BODY);
-                    astTriplets.add(astTriplet);
+                    // the statements of the body follow the body triplet
+                    row = ctx.triplet(ctx.next_available_id++);
+                    ctx.headLinks(row, "Related_triplets", ctx.next_available_id, forBodyCount);
+                    ctx.tail(row, "End_entity", "UNK");
+                    ctx.relation(row, Relation.WHILE_BODY);
 
                     PsiStatement[] statements = whileBody.getStatements();
                     for (PsiStatement psiStatement : statements) {
                         if (psiStatement instanceof PsiExpressionStatement) {
                             PsiExpressionStatement psiExpressionStatement = (PsiExpressionStatement) psiStatement;
                             PsiExpression psiExpression = psiExpressionStatement.getExpression();
-                            potential_bad_line = psiExpressionStatement;
                             if (psiExpression instanceof PsiMethodCallExpression) {
                                 PsiMethodCallExpression psiMethodCallExpression = (PsiMethodCallExpression) psiExpression;
                                 PsiReferenceExpression psiReferenceExpression = psiMethodCallExpression.getMethodExpression();
                                 String referenceExp = psiReferenceExpression.getCanonicalText();
                                 PsiExpression[] psiExpressionList = psiMethodCallExpression.getArgumentList().getExpressions();
-                                getArguments(astTriplets, psiExpressionList, referenceExp, WHILE_STATEMENT, METHODCALL_EXPRESSION, false);
+                                getArguments(ctx, psiExpressionList, referenceExp, psiReferenceExpression, WHILE_STATEMENT, METHODCALL_EXPRESSION, false);
                             }
                         }
                     }
@@ -715,12 +514,15 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
         }
     }
 
-    private static void whatElement(ArrayList<ASTtriplet> astTriplets, PsiElement[] psiElements, String relationType, boolean isRoot) {
+    private static void whatElement(TripletBuilderContext ctx, PsiElement[] psiElements, String relationType, boolean isRoot) {
 
         String psiType = "UNK";
         String psiIdentName = "UNK";
         String referenceElement_name = "UNK";
         String referenceExp = "UNK";
+        // the elements a warning on the call of referenceElement_name or referenceExp is reported on
+        PsiElement referenceElement_line = null;
+        PsiElement referenceExp_line = null;
 
         Boolean elseSection = false;
         String classType = null;
@@ -743,26 +545,27 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiDeclarationStatement declarationStatement = (PsiDeclarationStatement) psiElement;
                 PsiElement[] declaredElements = declarationStatement.getDeclaredElements();
 
-                potential_filereader_try_bad_line = declarationStatement;
+                ctx.declaration = declarationStatement;
 
                 // normally this would be in a try block
                 for (int i=0; i<declaredElements.length; i++) {
                     PsiElement declaredElement = declaredElements[i];
                     PsiElement[] children = declaredElement.getChildren();
-                    whatElement(astTriplets, children, TRY_STATEMENT, isRoot);
+                    whatElement(ctx, children, TRY_STATEMENT, isRoot);
                 }
+                ctx.declaration = null;
             }
             // EXPRESSION STATEMENT
             else if (psiElement instanceof PsiExpressionStatement) {
                 if (relationType.equals(TRY_STATEMENT)) {
                     PsiExpressionStatement psiExpressionStatement = (PsiExpressionStatement) psiElement;
                     PsiElement[] expressions = psiExpressionStatement.getChildren();
-                    whatElement(astTriplets, expressions, TRY_STATEMENT, isRoot);
+                    whatElement(ctx, expressions, TRY_STATEMENT, isRoot);
                 }
                 else if (relationType.equals(CATCH_SECTION)) {
                     PsiExpressionStatement psiExpressionStatement = (PsiExpressionStatement) psiElement;
                     PsiElement[] expressions = psiExpressionStatement.getChildren();
-                    whatElement(astTriplets, expressions, CATCH_SECTION, isRoot);
+                    whatElement(ctx, expressions, CATCH_SECTION, isRoot);
                 }
             }
             // REFERENCE EXPRESSION
@@ -770,45 +573,16 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiReferenceExpression psiReferenceExpression = (PsiReferenceExpression) psiElement;
                 referenceExp = psiReferenceExpression.getCanonicalText();
                 classType = "reference_expression";
-                if (referenceExp.equals("panel.add")) {
-//                    potential_bad_line = psiReferenceExpression;
-
-//                    jpanel_bad_line = potential_bad_line;
-                    jpanel_add_bad_line = psiReferenceExpression;
-                }
-                else if (referenceExp.equals("panel.remove")) {
-                    jpanel_remove_bad_line = psiReferenceExpression;
-
-                }
-                else if (referenceExp.equals("string.substring")) {
-                    char_At_substring_indexOf_bad_line = psiReferenceExpression;
-                    char_At_substring_larger_bad_line = psiReferenceExpression;
-                    char_At_substring_negative_bad_line = psiReferenceExpression;
-                }
-                else if (referenceExp.equals("string.indexOf")) {
-                    char_At_indexOf_bad_line = psiReferenceExpression;
-                }
-                else if (referenceExp.equals("iterator.next")) {
-                    iterator_next_bad_line = psiReferenceExpression;
-                }
-                else if (referenceExp.equals("iterator.remove")) {
-                    iterator_remove_bad_line = psiReferenceExpression;
-                }
-                else if (referenceExp.equals("reader.read")) {
-                    read_bad_line = psiReferenceExpression;
-                }
-
+                // a warning on this call is reported on its reference
+                referenceExp_line = psiReferenceExpression;
             }
             // CODE REFERENCE
             else if (psiElement instanceof PsiJavaCodeReferenceElement) {
                 PsiJavaCodeReferenceElement psiJavaCodeReferenceElement = (PsiJavaCodeReferenceElement) psiElement;
                 referenceElement_name = psiJavaCodeReferenceElement.getText();
                 classType = "reference_element";
-                if (referenceElement_name.equals("FileReader")) {
-                    filereader_try_bad_line = potential_filereader_try_bad_line;
-                    filereader_directory_badline = potential_filereader_try_bad_line;
-                    filereader_exist_bad_line = potential_filereader_try_bad_line;
-                }
+                // a warning on a constructor call is reported on the declaration it initialises, if any
+                referenceElement_line = ctx.declaration != null ? ctx.declaration : psiJavaCodeReferenceElement;
 
             }
             // all the arguments are in EXPRESSION LIST
@@ -816,26 +590,26 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiExpressionList psiExpressionList = (PsiExpressionList) psiElement;
                 PsiExpression[] psiExpressions = psiExpressionList.getExpressions();
                 if (relationType.equals(METHODCALL_EXPRESSION)) {
-                    getArguments(astTriplets, psiExpressions, referenceExp, relationType, classType, isRoot);
+                    getArguments(ctx, psiExpressions, referenceExp, referenceExp_line, relationType, classType, isRoot);
                 }
                 else if (relationType.equals(TRY_STATEMENT)) {
                     if (classType.equals("reference_element")) {
-                        getArguments(astTriplets, psiExpressions, referenceElement_name, relationType, classType, isRoot);
+                        getArguments(ctx, psiExpressions, referenceElement_name, referenceElement_line, relationType, classType, isRoot);
                     }
                     else {
-                        getArguments(astTriplets, psiExpressions, referenceExp, relationType, classType, isRoot);
+                        getArguments(ctx, psiExpressions, referenceExp, referenceExp_line, relationType, classType, isRoot);
 
                     }
                 }
                 else if (relationType.equals(CATCH_SECTION)) {
-                    getArguments(astTriplets, psiExpressions, referenceExp, relationType, classType, isRoot);
+                    getArguments(ctx, psiExpressions, referenceExp, referenceExp_line, relationType, classType, isRoot);
                 }
                 else if (relationType.equals(NEW_EXPRESSION)) {
                     if (classType.equals("reference_element")) {
-                        getArguments(astTriplets, psiExpressions, referenceElement_name, relationType, classType, isRoot);
+                        getArguments(ctx, psiExpressions, referenceElement_name, referenceElement_line, relationType, classType, isRoot);
                     }
                     else {
-                        getArguments(astTriplets, psiExpressions, referenceExp, relationType, classType, isRoot);
+                        getArguments(ctx, psiExpressions, referenceExp, referenceExp_line, relationType, classType, isRoot);
                     }
                 }
             }
@@ -844,64 +618,60 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiMethodCallExpression psiMethodCallExpression = (PsiMethodCallExpression) psiElement;
 
                 if (relationType.equals(RETURN_STMT)) {
-                    ASTtriplet astTriplet;
+                    int row;
                     if (isRoot) {
-                        astTriplet = new ASTtriplet(rootID++);
-                        astTriplet.first_entity.add("Related_triplet: " + "triplet_" + (next_available_id));
-                        astTriplet.second_entity.add("End_entity: " + "UNK");
-                        astTriplet.third_entity.add("Relation: " + RETURN_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.rootID++);
+                        ctx.headLink(row, "Related_triplet", (ctx.next_available_id));
+                        ctx.tail(row, "End_entity", "UNK");
+                        ctx.relation(row, Relation.RETURN_STATEMENT);
                         isRoot = false;
                     }
                     else {
-                        astTriplet = new ASTtriplet(next_available_id++);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (next_available_id + 1));
-                        astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.next_available_id++);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.next_available_id + 1));
+                        ctx.relation(row, Relation.DECLARATION_STATEMENT);
                     }
 
                     PsiElement[] children = psiMethodCallExpression.getChildren();
 
-                    whatElement(astTriplets, children, METHODCALL_EXPRESSION, isRoot);
+                    whatElement(ctx, children, METHODCALL_EXPRESSION, isRoot);
                 } else if (relationType.equals(EXPRESSION_STMT)) {
                     PsiElement[] children = psiMethodCallExpression.getChildren();
-                    whatElement(astTriplets, children, METHODCALL_EXPRESSION, isRoot);
+                    whatElement(ctx, children, METHODCALL_EXPRESSION, isRoot);
 
 
                 }
                 else if (relationType.equals(TRY_STATEMENT)) {
                     PsiElement[] children = psiMethodCallExpression.getChildren();
-                    whatElement(astTriplets, children, TRY_STATEMENT, isRoot);
+                    whatElement(ctx, children, TRY_STATEMENT, isRoot);
                 }
                 else if (relationType.equals(CATCH_SECTION)) {
                     PsiElement[] children = psiMethodCallExpression.getChildren();
-                    whatElement(astTriplets, children, CATCH_SECTION, isRoot);
+                    whatElement(ctx, children, CATCH_SECTION, isRoot);
                 }
                 else if (relationType.equals(DECLARATION_STMT)) {
-                    ASTtriplet astTriplet;
+                    int row;
                     if (isRoot) {
-                        astTriplet = new ASTtriplet(rootID++);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (next_available_id));
-                        astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.rootID++);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.next_available_id));
+                        ctx.relation(row, Relation.DECLARATION_STATEMENT);
                         isRoot = false;
                     }
                     else {
-                        astTriplet = new ASTtriplet(next_available_id++);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (id + 1));
-                        astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.next_available_id++);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.id + 1));
+                        ctx.relation(row, Relation.DECLARATION_STATEMENT);
                     }
 
                     PsiElement[] newExpressionChildren = psiMethodCallExpression.getChildren();
 
-                    whatElement(astTriplets, newExpressionChildren, METHODCALL_EXPRESSION, isRoot);
+                    whatElement(ctx, newExpressionChildren, METHODCALL_EXPRESSION, isRoot);
                 }
             }
             // LITERAL
@@ -909,94 +679,87 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 PsiLiteralExpression psiLiteralExpression = (PsiLiteralExpression) psiElement;
                 String literalExpressionText = psiLiteralExpression.getText();
 
-                ASTtriplet astTriplet = new ASTtriplet(id++);
+                int row = ctx.triplet(ctx.id++);
                 // record entity
-                astTriplet.first_entity.add("Type: " + psiType);
-                astTriplet.first_entity.add("Name: " + psiIdentName);
-                astTriplet.second_entity.add("LiteralExpression: " + literalExpressionText);
-                astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                astTriplets.add(astTriplet);
+                ctx.head(row, "Type", psiType);
+                ctx.head(row, "Name", psiIdentName);
+                ctx.tail(row, "LiteralExpression", literalExpressionText);
+                ctx.relation(row, Relation.DECLARATION_STATEMENT);
 
             }
             // NEW Expression
             else if (psiElement instanceof PsiNewExpression) {
                 PsiNewExpression psiNewExpression = (PsiNewExpression) psiElement;
                 if (relationType.equals(DECLARATION_STMT)) {
-                    ASTtriplet astTriplet;
+                    int row;
                     if (isRoot) {
-                        astTriplet = new ASTtriplet(rootID++);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (next_available_id));
-                        astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.rootID++);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.next_available_id));
+                        ctx.relation(row, Relation.DECLARATION_STATEMENT);
                         isRoot = false;
                     }
                     else {
-                        astTriplet = new ASTtriplet(next_available_id++);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (next_available_id + 1));
-                        astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.next_available_id++);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.next_available_id + 1));
+                        ctx.relation(row, Relation.DECLARATION_STATEMENT);
                     }
 
                     PsiElement[] newExpressionChildren = psiNewExpression.getChildren();
 
-                    whatElement(astTriplets, newExpressionChildren, NEW_EXPRESSION, isRoot);
+                    whatElement(ctx, newExpressionChildren, NEW_EXPRESSION, isRoot);
                 }
                 else if (relationType.equals(TRY_STATEMENT)) {
-                    ASTtriplet astTriplet;
+                    int row;
                     if (isRoot) {
-                        astTriplet = new ASTtriplet(try_lowest_rootID);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (try_next_available_id));
-                        astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.try_lowest_rootID);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.try_next_available_id));
+                        ctx.relation(row, Relation.DECLARATION_STATEMENT);
                         isRoot = false;
                     }
                     else {
-                        astTriplet = new ASTtriplet(id++);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (try_next_available_id));
-                        astTriplet.third_entity.add("Relation: " + DECLARATION_STMT);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.id++);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.try_next_available_id));
+                        ctx.relation(row, Relation.DECLARATION_STATEMENT);
                     }
 
                     PsiElement[] newExpressionChildren = psiNewExpression.getChildren();
 
-                    whatElement(astTriplets, newExpressionChildren, TRY_STATEMENT, isRoot);
+                    whatElement(ctx, newExpressionChildren, TRY_STATEMENT, isRoot);
                 }
                 else if (relationType.equals(ASSIGNMENT_EXP)) {
-                    ASTtriplet astTriplet;
+                    int row;
                     if (isRoot) {
-                        astTriplet = new ASTtriplet(rootID++);
-                        astTriplet.first_entity.add(REFERENCE_EXP + ": "+ referenceExp);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (next_available_id));
-                        astTriplet.third_entity.add("Relation: " + ASSIGNMENT_EXP);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.rootID++);
+                        ctx.head(row, REFERENCE_EXP, referenceExp);
+                        ctx.tailLink(row, "Related_triplets", (ctx.next_available_id));
+                        ctx.relation(row, Relation.ASSIGNMENT_EXPRESSION);
                         isRoot = false;
                     }
                     else {
-                        astTriplet = new ASTtriplet(next_available_id++);
-                        astTriplet.first_entity.add("Type: " + psiType);
-                        astTriplet.first_entity.add("Name: " + psiIdentName);
-                        astTriplet.second_entity.add("Related_triplets: " + "triplet_" + (next_available_id));
-                        astTriplet.third_entity.add("Relation: " + ASSIGNMENT_EXP);
-                        astTriplets.add(astTriplet);
+                        row = ctx.triplet(ctx.next_available_id++);
+                        ctx.head(row, "Type", psiType);
+                        ctx.head(row, "Name", psiIdentName);
+                        ctx.tailLink(row, "Related_triplets", (ctx.next_available_id));
+                        ctx.relation(row, Relation.ASSIGNMENT_EXPRESSION);
                     }
 
                     PsiElement[] newExpressionChildren = psiNewExpression.getChildren();
-                    whatElement(astTriplets, newExpressionChildren, NEW_EXPRESSION, isRoot);
+                    whatElement(ctx, newExpressionChildren, NEW_EXPRESSION, isRoot);
                 }
             }
             // ASSIGNMENT EXPRESSION
             else if (psiElement instanceof PsiAssignmentExpression) {
                 PsiAssignmentExpression psiAssignmentExpression = (PsiAssignmentExpression) psiElement;
                 PsiElement[] children = psiAssignmentExpression.getChildren();
-                whatElement(astTriplets, children, ASSIGNMENT_EXP, isRoot);
+                whatElement(ctx, children, ASSIGNMENT_EXP, isRoot);
             }
             else if (psiElement instanceof PsiArrayInitializerExpression) {
                 PsiArrayInitializerExpression psiArrayInitializerExpression = (PsiArrayInitializerExpression) psiElement;
@@ -1009,23 +772,21 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
 
                 String arrayInitializerExp = psiArrayInitializerExpression.getText();
 
-                ASTtriplet astTriplet;
+                int row;
                 if (isRoot) {
-                    astTriplet = new ASTtriplet(rootID++);
-                    astTriplet.first_entity.add(ARRAY_INITIALIZER_EXP + ": "+ arrayInitializerExp);
-                    astTriplet.second_entity.add("Arguments :" + arrayInitializer.toString());
-                    astTriplet.second_entity.add("Types :" + arrayInitializerType.toString());
-                    astTriplet.third_entity.add("Relation: " + ARRAY_INITIALIZER_EXP);
-                    astTriplets.add(astTriplet);
+                    row = ctx.triplet(ctx.rootID++);
+                    ctx.head(row, ARRAY_INITIALIZER_EXP, arrayInitializerExp);
+                    ctx.tail(row, "Arguments", arrayInitializer.toString());
+                    ctx.tail(row, "Types", arrayInitializerType.toString());
+                    ctx.relation(row, Relation.ARRAY_INITIALIZER_EXPRESSION);
                     isRoot = false;
                 }
                 else {
-                    astTriplet = new ASTtriplet(next_available_id++);
-                    astTriplet.first_entity.add(ARRAY_INITIALIZER_EXP + ": "+ arrayInitializerExp);
-                    astTriplet.second_entity.add("Arguments :" + arrayInitializer.toString());
-                    astTriplet.second_entity.add("Types :" + arrayInitializerType.toString());
-                    astTriplet.third_entity.add("Relation: " + ARRAY_INITIALIZER_EXP);
-                    astTriplets.add(astTriplet);
+                    row = ctx.triplet(ctx.next_available_id++);
+                    ctx.head(row, ARRAY_INITIALIZER_EXP, arrayInitializerExp);
+                    ctx.tail(row, "Arguments", arrayInitializer.toString());
+                    ctx.tail(row, "Types", arrayInitializerType.toString());
+                    ctx.relation(row, Relation.ARRAY_INITIALIZER_EXPRESSION);
                 }
 
             }
@@ -1035,15 +796,14 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 psiIdentName = psiCatchSection.getParameter().getName();
                 psiType = psiCatchSection.getParameter().getType().getPresentableText();
 
-                ASTtriplet asTtriplet = new ASTtriplet(id++);
-                asTtriplet.first_entity.add("Type: " + psiType);
-                asTtriplet.first_entity.add("Name: " + psiIdentName);
-                asTtriplet.second_entity.add("Related_triplets: " + "triplet_" + (id));
-                asTtriplet.third_entity.add("Relation: " + CATCH_SECTION);
-                astTriplets.add(asTtriplet);
+                int row = ctx.triplet(ctx.id++);
+                ctx.head(row, "Type", psiType);
+                ctx.head(row, "Name", psiIdentName);
+                ctx.tailLink(row, "Related_triplets", (ctx.id));
+                ctx.relation(row, Relation.CATCH_SECTION);
 
                 PsiElement[] children = psiCatchSection.getCatchBlock().getChildren();
-                whatElement(astTriplets, children, CATCH_SECTION, isRoot);
+                whatElement(ctx, children, CATCH_SECTION, isRoot);
 
             }
             else if (psiElement instanceof PsiKeyword) {
@@ -1057,21 +817,12 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 // add if statement relation
                 PsiIfStatement psiIfStatement = (PsiIfStatement) psiElement;
 
-                // list that stores the related triplets
-                ArrayList<String> related_triplets = new ArrayList<>();
-
-                for (int i = 0; i < 1; i++) {
-                    related_triplets.add("triplet_" + (next_available_id + i));
-                }
-
-                if_next_available_id = next_available_id + 1;
+                ctx.if_next_available_id = ctx.next_available_id + 1;
 
-                ASTtriplet astTriplet;
-                astTriplet = new ASTtriplet(rootID++);
-                astTriplet.first_entity.add("Related_triplets: " + related_triplets.toString());
-                astTriplet.second_entity.add("End_entity: " + ELSE_SECTION);
-                astTriplet.third_entity.add("Relation: " + IF_STMT);
-                astTriplets.add(astTriplet);
+                int row = ctx.triplet(ctx.rootID++);
+                ctx.headLinks(row, "Related_triplets", ctx.next_available_id, 1);
+                ctx.tail(row, "End_entity", ELSE_SECTION);
+                ctx.relation(row, Relation.IF_STATEMENT);
 
                 PsiExpression ifConditionStatement = psiIfStatement.getCondition();
                 if (ifConditionStatement instanceof PsiBinaryExpression) {
@@ -1083,13 +834,12 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     String ROperand = psiBinaryExpression.getROperand().getText();
                     String ROperand_type = psiBinaryExpression.getROperand().getType().getPresentableText();
 
-                    astTriplet = new ASTtriplet(rootID++);
-                    astTriplet.first_entity.add("Related_triplets: " + "triplet_" + if_next_available_id);
-                    astTriplet.second_entity.add("LOperand: " + LOperand);
-                    astTriplet.second_entity.add("Operation: " + operation);
-                    astTriplet.second_entity.add("ROperand: " + ROperand);
-                    astTriplet.third_entity.add("Relation: " + BINARY_EXPRESSION);
-                    astTriplets.add(astTriplet);
+                    row = ctx.triplet(ctx.rootID++);
+                    ctx.headLink(row, "Related_triplets", ctx.if_next_available_id);
+                    ctx.tail(row, "LOperand", LOperand);
+                    ctx.tail(row, "Operation", operation);
+                    ctx.tail(row, "ROperand", ROperand);
+                    ctx.relation(row, Relation.BINARY_EXPRESSION);
 
                     PsiExpression psiBinaryExpressionLOperand = psiBinaryExpression.getLOperand();
                     if (psiBinaryExpressionLOperand instanceof PsiMethodCallExpression) {
@@ -1097,7 +847,7 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                         PsiReferenceExpression psiReferenceExpression = psiMethodCallExpression.getMethodExpression();
                         String referenceExpressionCanonicalText = psiReferenceExpression.getCanonicalText();
                         PsiExpression[] psiExpressionList = psiMethodCallExpression.getArgumentList().getExpressions();
-                        getArguments(astTriplets, psiExpressionList, referenceExpressionCanonicalText, IF_STMT, METHODCALL_EXPRESSION, false);
+                        getArguments(ctx, psiExpressionList, referenceExpressionCanonicalText, psiReferenceExpression, IF_STMT, METHODCALL_EXPRESSION, false);
                     }
                 }
                 else if (ifConditionStatement instanceof PsiMethodCallExpression) {
@@ -1106,38 +856,31 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                     PsiReferenceExpression psiReferenceExpression = psiMethodCallExpression.getMethodExpression();
                     String referenceExpressionCanonicalText = psiReferenceExpression.getCanonicalText();
                     PsiExpression[] psiExpressionList = psiMethodCallExpression.getArgumentList().getExpressions();
-                    astTriplet = new ASTtriplet(rootID++);
-                    astTriplet.first_entity.add("ReferenceExpression: "+ referenceExpressionCanonicalText);
-                    astTriplet.second_entity.add("Argument: " + "[]");
-                    astTriplet.second_entity.add("Type: " + "[]");
-                    astTriplet.third_entity.add("Relation: " + "IfCondition");
-                    astTriplets.add(astTriplet);
+                    row = ctx.triplet(ctx.rootID++);
+                    ctx.badLine(row, psiReferenceExpression);
+                    ctx.head(row, "ReferenceExpression", referenceExpressionCanonicalText);
+                    ctx.tail(row, "Argument", "[]");
+                    ctx.tail(row, "Type", "[]");
+                    ctx.relation(row, Relation.IF_CONDITION);
 
                     PsiStatement thenBranch = psiIfStatement.getThenBranch();
                     if (thenBranch instanceof PsiBlockStatement) {
                         PsiBlockStatement psiBlockStatement = (PsiBlockStatement) thenBranch;
                         // there is something in then branch
                         if (!psiBlockStatement.getCodeBlock().isEmpty()) {
-                            int blockStatementCount = psiBlockStatement.getCodeBlock().getStatementCount();
-                            // list that stores the related triplets
-                            related_triplets = new ArrayList<>();
-                            for (int i = 0; i < blockStatementCount; i++) {
-                                related_triplets.add("triplet_" + (if_next_available_id + i));
-                            }
 
-                            astTriplet = new ASTtriplet(rootID++);
-                            astTriplet.first_entity.add("Related_triplets: " + "triplet_" + if_next_available_id);
-                            astTriplet.second_entity.add("End_entity: " + "UNK");
+                            row = ctx.triplet(ctx.rootID++);
+                            ctx.headLink(row, "Related_triplets", ctx.if_next_available_id);
+                            ctx.tail(row, "End_entity", "UNK");
 
-                            astTriplet.third_entity.add("Relation: " + "IfBody");
-                            astTriplets.add(astTriplet);
+                            ctx.relation(row, Relation.IF_BODY);
 
                             PsiStatement[] psiStatements = psiBlockStatement.getCodeBlock().getStatements();
                             for (PsiStatement psiStatement : psiStatements) {
                                 if (psiStatement instanceof PsiDeclarationStatement) {
-                                    whatStatement(astTriplets, psiStatement);
+                                    whatStatement(ctx, psiStatement);
                                 } else if (psiStatement instanceof PsiExpressionStatement)
-                                    whatStatement(astTriplets, psiStatement);
+                                    whatStatement(ctx, psiStatement);
                             }
                         }
                     }
@@ -1148,113 +891,106 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
 
 
     // GET ARGUMENTS
-    private static void getArguments(ArrayList<ASTtriplet> astTriplets, PsiExpression[] psiExpressions, String first_Entity, String relationType, String classType, boolean isRoot) {
+    // bad_line is the element a warning on the call is reported on, null if there is none
+    private static void getArguments(TripletBuilderContext ctx, PsiExpression[] psiExpressions, String first_Entity, PsiElement bad_line, String relationType, String classType, boolean isRoot) {
         // no arguments
         if (psiExpressions.length == 0) {
             // assume it always follow a methodcallexpression
             if (relationType.equals(TRY_STATEMENT)) {
-                ASTtriplet astTriplet = new ASTtriplet(id++);
+                int row = ctx.triplet(ctx.id++);
+                ctx.badLine(row, bad_line);
                 if (classType.equals("reference_expression")) {
-                    astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
+                    ctx.head(row, REFERENCE_EXP, first_Entity);
                 }
-                astTriplet.second_entity.add("Arguments: " + "UNK");
-                astTriplet.second_entity.add("Types: " + "UNK");
-                astTriplet.third_entity.add("Relation: " + METHODCALL_EXPRESSION);
-                astTriplets.add(astTriplet);
+                ctx.tail(row, "Arguments", "UNK");
+                ctx.tail(row, "Types", "UNK");
+                ctx.relation(row, Relation.METHOD_CALL_EXPRESSION);
             }
             else if (relationType.equals(CATCH_SECTION)) {
-                ASTtriplet astTriplet = new ASTtriplet(id++);
+                int row = ctx.triplet(ctx.id++);
+                ctx.badLine(row, bad_line);
                 if (classType.equals("reference_expression")) {
-                    astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
+                    ctx.head(row, REFERENCE_EXP, first_Entity);
                 }
-                astTriplet.second_entity.add("Arguments: " + "UNK");
-                astTriplet.second_entity.add("Types: " + "UNK");
-                astTriplet.third_entity.add("Relation: " + METHODCALL_EXPRESSION);
-                astTriplets.add(astTriplet);
+                ctx.tail(row, "Arguments", "UNK");
+                ctx.tail(row, "Types", "UNK");
+                ctx.relation(row, Relation.METHOD_CALL_EXPRESSION);
             }
             else if (relationType.equals(NEW_EXPRESSION)) {
-                ASTtriplet astTriplet = new ASTtriplet(next_available_id++);
+                int row = ctx.triplet(ctx.next_available_id++);
+                ctx.badLine(row, bad_line);
                 if (classType.equals("reference_expression")) {
-                    astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
+                    ctx.head(row, REFERENCE_EXP, first_Entity);
                 }
                 else if (classType.equals("reference_element"))
-                    astTriplet.first_entity.add(REFERENCE_ELEMENT + ": " + first_Entity);
-                    astTriplet.second_entity.add("Arguments: " + "UNK");
-                    astTriplet.second_entity.add("Types: " + "UNK");
-                    astTriplet.third_entity.add("Relation: " + NEW_EXPRESSION);
-                    astTriplets.add(astTriplet);
+                    ctx.head(row, REFERENCE_ELEMENT, first_Entity);
+                    ctx.tail(row, "Arguments", "UNK");
+                    ctx.tail(row, "Types", "UNK");
+                    ctx.relation(row, Relation.NEW_EXPRESSION);
             }
             else if (relationType.equals(METHODCALL_EXPRESSION)) {
-                ASTtriplet astTriplet;
+                int row;
                 if (isRoot) {
-                    astTriplet = new ASTtriplet(rootID++);
-
+                    row = ctx.triplet(ctx.rootID++);
                 }
                 else {
-                    astTriplet = new ASTtriplet(next_available_id++);
-
+                    row = ctx.triplet(ctx.next_available_id++);
                 }
+                ctx.badLine(row, bad_line);
                 if (classType.equals("reference_expression")) {
-                    astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
+                    ctx.head(row, REFERENCE_EXP, first_Entity);
                 }
-                astTriplet.second_entity.add("Arguments: " + "UNK");
-                astTriplet.second_entity.add("Types: " + "UNK");
-                astTriplet.third_entity.add("Relation: " + METHODCALL_EXPRESSION);
-                astTriplets.add(astTriplet);
+                ctx.tail(row, "Arguments", "UNK");
+                ctx.tail(row, "Types", "UNK");
+                ctx.relation(row, Relation.METHOD_CALL_EXPRESSION);
             }
             else if (relationType.equals(WHILE_STATEMENT)) {
-                ASTtriplet astTriplet;
+                int row;
                 if (isRoot) {
-                    astTriplet = new ASTtriplet(rootID++);
-
+                    row = ctx.triplet(ctx.rootID++);
                 }
                 else {
-                    astTriplet = new ASTtriplet(next_available_id++);
-
+                    row = ctx.triplet(ctx.next_available_id++);
                 }
+                ctx.badLine(row, bad_line);
 
-                astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
-                astTriplet.second_entity.add("Arguments: " + "UNK");
-                astTriplet.second_entity.add("Types: " + "UNK");
-                astTriplet.third_entity.add("Relation: " + METHODCALL_EXPRESSION);
-                astTriplets.add(astTriplet);
+                ctx.head(row, REFERENCE_EXP, first_Entity);
+                ctx.tail(row, "Arguments", "UNK");
+                ctx.tail(row, "Types", "UNK");
+                ctx.relation(row, Relation.METHOD_CALL_EXPRESSION);
             }
         }
         else {
-            // create a triplet first
-            ASTtriplet astTriplet;
+            // create a triplet first, its row comes before the rows of the calls nested in its arguments
+            int row;
             if (relationType.equals(TRY_STATEMENT)) {
-                astTriplet = new ASTtriplet(try_next_available_id++);
+                row = ctx.triplet(ctx.try_next_available_id++);
             } else if (relationType.equals(IF_STMT) || relationType.equals(THEN_BRANCH)) {
-                astTriplet = new ASTtriplet(if_next_available_id++);
+                row = ctx.triplet(ctx.if_next_available_id++);
             } else {
                 if (isRoot) {
-                    astTriplet = new ASTtriplet(rootID++);
+                    row = ctx.triplet(ctx.rootID++);
                     isRoot = false;
                 } else {
-                    astTriplet = new ASTtriplet(next_available_id++);
+                    row = ctx.triplet(ctx.next_available_id++);
                 }
             }
+            ctx.badLine(row, bad_line);
 
             ArrayList<String> argumentsList = new ArrayList<>();
             ArrayList<String> argumentsTypeList = new ArrayList<>();
 
-            boolean stop = false;
-
             for (int i = 0; i < psiExpressions.length; i++) {
                 PsiExpression psiExpression = psiExpressions[i];
                 if (psiExpression instanceof PsiMethodCallExpression) {
                     if (classType.equals("reference_expression")) {
-                        astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
+                        ctx.head(row, REFERENCE_EXP, first_Entity);
                     }
-                    astTriplet.second_entity.add("Arguments: " + "triplet_" + (next_available_id));
-                    astTriplet.third_entity.add("Relation: " + METHODCALL_EXPRESSION);
-                    astTriplets.add(astTriplet);
-                    char_At_substring_negative_complex_bad_line = char_At_substring_negative_bad_line;
+                    ctx.tailLink(row, "Arguments", (ctx.next_available_id));
+                    ctx.relation(row, Relation.METHOD_CALL_EXPRESSION);
 
                     PsiElement[] children = ((PsiMethodCallExpression) psiExpression).getChildren();
-                    whatElement(astTriplets, children, METHODCALL_EXPRESSION, isRoot);
-                    stop = true;
+                    whatElement(ctx, children, METHODCALL_EXPRESSION, isRoot);
                 } else if (psiExpression instanceof PsiLiteralExpression) {
                     String argument = ((PsiLiteralExpression) psiExpression).getText();
                     String type = ((PsiLiteralExpression) psiExpression).getType().getPresentableText();
@@ -1285,28 +1021,25 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
                 }
             }
             if (classType.equals("reference_element")) {
-                astTriplet.first_entity.add(REFERENCE_ELEMENT + ": " + first_Entity);
+                ctx.head(row, REFERENCE_ELEMENT, first_Entity);
             } else if (classType.equals("reference_expression")) {
-                astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
+                ctx.head(row, REFERENCE_EXP, first_Entity);
             }
 
-            astTriplet.second_entity.add("Arguments: " + argumentsList.toString());
-            astTriplet.second_entity.add("Types: " + argumentsTypeList.toString());
+            ctx.tail(row, "Arguments", argumentsList.toString());
+            ctx.tail(row, "Types", argumentsTypeList.toString());
 
             if (relationType.equals(METHODCALL_EXPRESSION)) {
-                astTriplet.third_entity.add("Relation: " + METHODCALL_EXPRESSION);
+                ctx.relation(row, Relation.METHOD_CALL_EXPRESSION);
 
             } else if (relationType.equals(FOR_STATEMENT)) {
-                astTriplet.first_entity.add(REFERENCE_EXP + ": " + first_Entity);
-                astTriplet.third_entity.add("Relation: " + classType);
+                ctx.head(row, REFERENCE_EXP, first_Entity);
+                ctx.relation(row, Relation.fromLabel(classType));
             } else if (relationType.equals(IF_STMT) || relationType.equals(THEN_BRANCH)) {
-                astTriplet.first_entity.add(classType + ": " + first_Entity);
-                astTriplet.third_entity.add("Relation: " + classType);
+                ctx.head(row, classType, first_Entity);
+                ctx.relation(row, Relation.fromLabel(classType));
             } else {
-                astTriplet.third_entity.add("Relation: " + NEW_EXPRESSION);
-            }
-            if (!stop) {
-                astTriplets.add(astTriplet);
+                ctx.relation(row, Relation.NEW_EXPRESSION);
             }
         }
     }
@@ -1358,455 +1091,4 @@ public class KGInspection extends AbstractBaseJavaLocalInspectionTool {
         }
     }
 
-    private static boolean checkConstraint(ArrayList<ASTtriplet> astTriplets, String case_name) {
-        String mark = "validate";
-        if (case_name.equals("jpanelWarning")) {
-            int test_id = 0;
-            boolean test = false;
-            for (ASTtriplet t : astTriplets) {
-                int triplet_id = t.getID();
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: panel.add") | t.first_entity.get(0).equals("ReferenceExpression: panel.remove")) {
-                        test_id = triplet_id;
-                        mark = "add/remove";
-                        for (ASTtriplet t1 : astTriplets) {
-                            int id = t1.getID();
-                            if (id > test_id) {
-                                if (t1.first_entity.get(0).equals("ReferenceExpression: panel.validate")) {
-                                    mark = "validate";
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-            if (mark.equals("validate")) {
-                return false;
-            }
-            return true;
-        }
-        else if (case_name.equals("iteratorWarning")) {
-            int test_id = 0;
-            boolean next_test = false;
-            boolean remove_test = false;
-            int total_len = astTriplets.size();
-            for (ASTtriplet t : astTriplets) {
-                int triplet_id = t.getID();
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: iterator.next")) {
-                        next_test = true;
-                        test_id = triplet_id;
-                    }
-                }
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: iterator.remove")) {
-                        remove_test = true;
-                        test_id = triplet_id;
-                    }
-                }
-            }
-            if (next_test) {
-                for (ASTtriplet t : astTriplets) {
-                    int triplet_id = t.getID();
-                    if (triplet_id < test_id) {
-                        if (t.first_entity.get(0).equals("MethodCallExpression: iterator.hasNext()") | t.first_entity.get(0).equals("ReferenceExpression: iterator.hasNext")) {
-                            return false;
-                        }
-                    }
-                }
-            }
-            else if (remove_test) {
-                for (ASTtriplet t: astTriplets) {
-                    int triplet_id = t.getID();
-                    if (triplet_id < test_id) {
-                        if (t.first_entity.get(0).equals("ReferenceExpression: iterator.next")) {
-                            return false;
-                        }
-                    }
-                }
-            }
-            if (!remove_test && !next_test) {
-                return false;
-            }
-            return true;
-        }
-        else if (case_name.equals("stringWarning")) {
-            int test_id = 0;
-            boolean test = false;
-            String literalExpression = "";
-            int idxOf_value = -1;
-            for (ASTtriplet t : astTriplets) {
-                int triplet_id = t.getID();
-                if (t.third_entity.get(0).equals("Relation: DeclarationStatement")) {
-                    String type = t.first_entity.get(0).split(",", 2)[0];
-                    literalExpression = t.second_entity.get(0).split(":", 2)[1];
-                    literalExpression = literalExpression.replace(" ", "");
-                    literalExpression = literalExpression.replace("\"", "");
-                }
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: string.indexOf")) {
-                        String argument = t.second_entity.get(0).split(",", 2)[0];
-                        argument = argument.split(":", 2)[1];
-                        argument = argument.replace(" ", "");
-                        argument = argument.replace("[", "");
-                        argument = argument.replace("]", "");
-                        argument = argument.replace("\'", "");
-                        if (!literalExpression.contains(argument)) {
-                            return true;
-
-                        } else {
-                            idxOf_value = literalExpression.indexOf(argument);
-                        }
-                    }
-                }
-
-                if (t.third_entity.get(0).split(",", 2)[0].equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).split(",", 2)[0].equals("ReferenceExpression: string.substring")) {
-                        String substring_arg = t.second_entity.get(0);
-                        substring_arg = substring_arg.split(":", 2)[1];
-                        String substring_type = t.second_entity.get(1);
-                        substring_type = substring_type.replace(" ", "");
-                        if (substring_type.equals("Types:[int]")) {
-                            substring_arg = substring_arg.replace(" ", "");
-                            substring_arg = substring_arg.replace("[", "");
-                            substring_arg = substring_arg.replace("]", "");
-                            int substring_arg_value = Integer.parseInt(substring_arg);
-                            if (substring_arg_value <= 0) {
-                                return true;
-                            } else if (substring_arg_value >= literalExpression.length()) {
-                                return true;
-                            }
-                        }
-                        else if (substring_type.equals("Arguments:[]")) {
-                            continue;
-                        }
-                        else if (substring_arg.contains("triplet")){
-                            substring_arg = substring_arg.split("_",2)[1];
-                            int related_triplet_id = Integer.parseInt(substring_arg);
-                            for (ASTtriplet related_t : astTriplets) {
-                                if (related_t.getID() == related_triplet_id && related_t.first_entity.equals("ReferenceExpression: string.indexOf")) {
-                                    String argument = t.second_entity.get(0).split(",", 2)[0];
-                                    argument = argument.split(":", 2)[1];
-                                    argument = argument.replace(" ", "");
-                                    argument = argument.replace("[", "");
-                                    argument = argument.replace("]", "");
-                                    argument = argument.replace("\'", "");
-                                    if (!literalExpression.contains(argument)) {
-                                        return true;
-                                    }
-                                }
-                            }
-                        }
-                        else {
-                            if (idxOf_value < 0) {
-                                return true;
-                            } else if (idxOf_value >= literalExpression.length()) {
-                                return true;
-                            }
-                        }
-                    }
-                }
-            }
-            return false;
-        }
-        else if (case_name.equals("filereaderWarning")) {
-            boolean fileExist = false;
-            boolean directoryExist = false;
-            boolean tryExist = false;
-            for (ASTtriplet t : astTriplets) {
-                if (t.first_entity.get(0).equals("ReferenceExpression: file.exists")) {
-                    fileExist = true;
-                }
-                if (t.first_entity.get(0).equals("ReferenceExpression: file.isDirectory")) {
-                    directoryExist = true;
-                }
-                if (t.third_entity.get(0).equals("Relation: TryStatement")) {
-                    tryExist = true;
-                }
-                if (t.first_entity.get(0).equals("ReferenceElement: FileReader")) {
-                    if (!tryExist) {
-                        return true;
-                    }
-                    if (!fileExist) {
-                        return true;
-                    }
-                    if (!directoryExist) {
-                        return true;
-                    }
-                }
-                if (t.first_entity.get(0).equals("ReferenceExpression: reader.read")) {
-                    if (!tryExist) {
-                        return true;
-                    }
-                }
-
-            }
-            return false;
-        }
-        return false;
-    }
-
-    private static String checkfiletry(ArrayList<ASTtriplet> astTriplets, String case_name) {
-        if (case_name.equals("fileReaderTryCatch")) {
-            boolean fileExist = false;
-            boolean directoryExist = false;
-            boolean tryExist = false;
-            for (ASTtriplet t : astTriplets) {
-                if (t.first_entity.get(0).equals("ReferenceExpression: file.exists")) {
-                    fileExist = true;
-                }
-                if (t.first_entity.get(0).equals("ReferenceExpression: file.isDirectory")) {
-                    directoryExist = true;
-                }
-                if (t.third_entity.get(0).equals("Relation: TryStatement")){
-                    tryExist = true;
-                }
-                if (t.first_entity.get(0).equals("ReferenceElement: FileReader")) {
-                    if (!tryExist) {
-                        return "filereader_try";
-                    }
-                    if (!fileExist) {
-                        return "file";
-                    }
-                    if (!directoryExist) {
-                        return "directory";
-                    }
-
-                }
-                if (t.first_entity.get(0).equals("ReferenceExpression: reader.read")) {
-                    if (!tryExist) {
-                        return "read_try";
-                    }
-                }
-            }
-        }
-        return "end";
-    }
-
-    private static ArrayList<String> checkCapability(ArrayList<ASTtriplet> astTriplets, String case_name) {
-        ArrayList<String> problems = new ArrayList<>();
-        if (case_name.equals("filereaderWarning")) {
-            boolean fileExist = false;
-            boolean directoryExist = false;
-            boolean tryExist = false;
-            for (ASTtriplet t : astTriplets) {
-                if (t.first_entity.get(0).equals("ReferenceExpression: file.exists")) {
-                    fileExist = true;
-                }
-                if (t.first_entity.get(0).equals("ReferenceExpression: file.isDirectory")) {
-                    directoryExist = true;
-                }
-                if (t.third_entity.get(0).equals("Relation: TryStatement")){
-                    tryExist = true;
-                }
-                if (t.first_entity.get(0).equals("ReferenceElement: FileReader")) {
-                    if (!tryExist) {
-                        problems.add("filereader_try");
-                    }
-                    if (!fileExist) {
-                        problems.add("file");
-                    }
-                    if (!directoryExist) {
-                        problems.add("directory");
-                    }
-
-                }
-                if (t.first_entity.get(0).equals("ReferenceExpression: reader.read")) {
-                    if (!tryExist) {
-                        problems.add("read_try");
-                    }
-                }
-            }
-        }
-        return problems;
-    }
-
-    private static ArrayList<String> checkJPanel(ArrayList<ASTtriplet> astTriplets, String case_name) {
-        ArrayList<String> marks = new ArrayList<>();
-        if (case_name.equals("jpanelWarning")) {
-            int test_id = 0;
-            boolean test = false;
-            for (ASTtriplet t : astTriplets) {
-                int triplet_id = t.getID();
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: panel.add")) {
-                        marks.add("add");
-                    }
-                    else if (t.first_entity.get(0).equals("ReferenceExpression: panel.remove")) {
-                        marks.add("remove");
-                    }
-                    test_id = triplet_id;
-                    for (ASTtriplet t1 : astTriplets) {
-                        int id = t1.getID();
-                        if (id > test_id) {
-                            if (t1.first_entity.get(0).equals("ReferenceExpression: panel.validate")) {
-                                marks.clear();
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return marks;
-    }
-
-    private static ArrayList<String> checkcharAt(ArrayList<ASTtriplet> astTriplets, String case_name) {
-        ArrayList<String> problems = new ArrayList<>();
-        if (case_name.equals("stringWarning")) {
-            int test_id = 0;
-            boolean test = false;
-            String s = "";
-            int idxOf_value = -1;
-            for (ASTtriplet t : astTriplets) {
-                int triplet_id = t.getID();
-                if (t.third_entity.get(0).equals("Relation: DeclarationStatement") && t.second_entity.get(0).split(":",2)[0].equals("LiteralExpression")) {
-                    String type = t.first_entity.get(0).split(",", 2)[0];
-                    s = t.second_entity.get(0).split(":", 2)[1];
-                    s = s.replace(" ", "");
-                    s = s.replace("\"", "");
-
-                }
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: string.indexOf")) {
-                        String argument = t.second_entity.get(0).split(",", 2)[0];
-                        argument = argument.split(":", 2)[1];
-                        argument = argument.replace(" ", "");
-                        argument = argument.replace("[", "");
-                        argument = argument.replace("]", "");
-                        argument = argument.replace("\'", "");
-
-                        if (!s.contains(argument)) {
-                            problems.add("indexOf_constraint");
-                        } else {
-                            idxOf_value = s.indexOf(argument);
-                        }
-
-                    }
-                }
-
-                if (t.third_entity.get(0).split(",", 2)[0].equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).split(",", 2)[0].equals("ReferenceExpression: string.substring")) {
-                        String substring_arg = t.second_entity.get(0);
-                        substring_arg = substring_arg.split(":", 2)[1];
-                        String substring_type = t.second_entity.get(1);
-                        substring_type = substring_type.replace(" ", "");
-                        if (substring_type.equals("Types:[int]")) {
-                            substring_arg = substring_arg.replace(" ", "");
-                            substring_arg = substring_arg.replace("[", "");
-                            substring_arg = substring_arg.replace("]", "");
-                            int substring_arg_value = Integer.parseInt(substring_arg);
-                            if (substring_arg_value <= 0) {
-                                problems.add("substring_negative");
-                            } else if (substring_arg_value >= s.length()) {
-                                problems.add("substring_larger");
-                            }
-                        }
-                        else if (substring_arg.contains("triplet")) {
-                            substring_arg = substring_arg.split("_", 2)[1];
-                            int related_triplet_id = Integer.parseInt(substring_arg);
-                            for (ASTtriplet related_t : astTriplets) {
-                                if (related_t.getID() == related_triplet_id && related_t.first_entity.get(0).equals("ReferenceExpression: string.indexOf")) {
-                                    String argument = related_t.second_entity.get(0).split(",", 2)[0];
-                                    argument = argument.split(":", 2)[1];
-                                    argument = argument.replace(" ", "");
-                                    argument = argument.replace("[", "");
-                                    argument = argument.replace("]", "");
-                                    argument = argument.replace("\'", "");
-                                    if (!s.contains(argument)) {
-                                        problems.add("substring_negative_complex");
-                                    }
-                                }
-                            }
-                        }
-                        else if (substring_type.equals("Arguments:[]")) {
-                            continue;
-                        }
-
-                        else {
-                            if (idxOf_value < 0) {
-                                problems.add("substring_indexOf_negative");
-                            }
-                            else if (idxOf_value >= s.length()) {
-                                problems.add("substring_larger");
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return problems;
-    }
-
-    private static ArrayList<String> checkiteratorPattern(ArrayList<ASTtriplet> astTriplets, String case_name) {
-        ArrayList<String> problems = new ArrayList<>();
-        boolean hasnext_b = false;
-        boolean remove_b = false;
-        boolean next_test = false;
-        boolean remove_test = false;
-        if (case_name.equals("iteratorWarning")) {
-            int total_len = astTriplets.size();
-            int test_id = 0;
-            for (ASTtriplet t : astTriplets) {
-                int triplet_id = t.getID();
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: iterator.next")) {
-                        next_test = true;
-                        test_id = triplet_id;
-                    }
-                }
-                if (t.third_entity.get(0).equals("Relation: MethodCallExpression")) {
-                    if (t.first_entity.get(0).equals("ReferenceExpression: iterator.remove")) {
-                        remove_test = true;
-                        test_id = triplet_id;
-                    }
-                }
-            }
-            if (next_test) {
-                for (ASTtriplet t : astTriplets) {
-                    int triplet_id = t.getID();
-                    if (triplet_id < test_id) {
-                        if (t.first_entity.get(0).equals("MethodCallExpression: iterator.hasNext()") | t.first_entity.get(0).equals("ReferenceExpression: iterator.hasNext")) {
-                            hasnext_b = true;
-                        }
-                    }
-                }
-            }
-            if (remove_test) {
-                for (ASTtriplet t : astTriplets) {
-                    int triplet_id = t.getID();
-                    if (triplet_id < test_id) {
-                        if (t.first_entity.get(0).equals("ReferenceExpression: iterator.next")) {
-                            remove_b = true;
-                        }
-                    }
-                }
-            }
-        }
-        if (!hasnext_b && next_test) {
-            problems.add("hasnext");
-        }
-        if (!remove_b) {
-            problems.add("remove");
-        }
-        return problems;
-    }
-
-
-    private static String getCase(ArrayList<ASTtriplet> astTriplets) {
-        for (ASTtriplet t : astTriplets) {
-            if (t.getID() == 0) {
-                String first_entity = t.first_entity.get(0);
-                String name = first_entity.split(",", 2)[0];
-                String case_name = name.split(":", 2)[1];
-                case_name = case_name.replace(" ", "");
-                return case_name;
-            }
-        }
-        return "error";
-    }
-
 }
-
-
-
-
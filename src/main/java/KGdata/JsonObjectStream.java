@@ -0,0 +1,203 @@
+package KGdata;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+/*
+This class reads a stream of flat JSON objects written back to back without an enclosing array,
+which is the format of the KG node files, e.g. {"idx": 7, "node_name": "l"}{"idx": 9, "node_name": "l"}
+Objects may also be separated by whitespace or commas. Only one object is held in memory at a time.
+Nested objects and arrays are skipped, numbers and literals are kept as their raw text
+ */
+
+final class JsonObjectStream implements Closeable {
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+    private long consumed = 0;
+
+    // reused for every string value so that parsing a record only allocates the resulting strings
+    private final StringBuilder text = new StringBuilder();
+
+    JsonObjectStream(Reader reader) {
+        this.reader = reader;
+    }
+
+    // read the next object into fields (cleared first), returns false at the end of the stream
+    boolean next(Map<String, String> fields) throws IOException {
+        fields.clear();
+        int c = skipSeparators();
+        if (c == -1) {
+            return false;
+        }
+        if (c != '{') {
+            throw error("expected '{' but found '" + (char) c + "'");
+        }
+        pos++;
+
+        c = skipWhitespace();
+        if (c == '}') {
+            pos++;
+            return true;
+        }
+        while (true) {
+            if (c != '"') {
+                throw error("expected a field name");
+            }
+            String name = readString();
+            if (skipWhitespace() != ':') {
+                throw error("expected ':' after \"" + name + "\"");
+            }
+            pos++;
+            fields.put(name, readValue());
+
+            c = skipWhitespace();
+            if (c == ',') {
+                pos++;
+                c = skipWhitespace();
+            }
+            else if (c == '}') {
+                pos++;
+                return true;
+            }
+            else {
+                throw error("expected ',' or '}'");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private String readValue() throws IOException {
+        int c = skipWhitespace();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            skipNested();
+            return null;
+        }
+        text.setLength(0);
+        while ((c = peek()) != -1 && c != ',' && c != '}' && !isWhitespace(c)) {
+            text.append((char) c);
+            pos++;
+        }
+        if (text.length() == 0) {
+            throw error("expected a value");
+        }
+        return text.toString().equals("null") ? null : text.toString();
+    }
+
+    private String readString() throws IOException {
+        // opening quote
+        pos++;
+        text.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c == -1) {
+                throw error("unterminated string");
+            }
+            pos++;
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+            int escaped = peek();
+            pos++;
+            switch (escaped) {
+                case 'n': text.append('\n'); break;
+                case 't': text.append('\t'); break;
+                case 'r': text.append('\r'); break;
+                case 'b': text.append('\b'); break;
+                case 'f': text.append('\f'); break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(peek(), 16);
+                        if (digit < 0) {
+                            throw error("bad unicode escape");
+                        }
+                        code = code * 16 + digit;
+                        pos++;
+                    }
+                    text.append((char) code);
+                    break;
+                case -1:
+                    throw error("unterminated string");
+                default:
+                    // \" \\ \/ and anything unknown stand for the character itself
+                    text.append((char) escaped);
+            }
+        }
+    }
+
+    private void skipNested() throws IOException {
+        int depth = 0;
+        while (true) {
+            int c = peek();
+            if (c == -1) {
+                throw error("unterminated value");
+            }
+            if (c == '"') {
+                readString();
+                continue;
+            }
+            pos++;
+            if (c == '{' || c == '[') {
+                depth++;
+            }
+            else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int skipSeparators() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && (c == ',' || isWhitespace(c))) {
+            pos++;
+        }
+        return c;
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c;
+        while ((c = peek()) != -1 && isWhitespace(c)) {
+            pos++;
+        }
+        return c;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit) {
+            consumed += limit;
+            limit = reader.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos];
+    }
+
+    private IOException error(String message) {
+        return new IOException("Malformed KG data at character " + (consumed + pos) + ": " + message);
+    }
+}
@@ -0,0 +1,304 @@
+package KGdata;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/*
+This class is an in-memory graph of the KG node_relation edges (start_id -> end_id, typed by relation).
+Every relation type gets its own forward and reverse adjacency, stored CSR-style in primitive int arrays,
+so neighbourhood lookups are an int map probe plus an array range.
+Built with a Builder (or load()); the graph is immutable afterwards and safe to query from any thread
+ */
+
+public class KGGraph {
+
+    public static final int NO_RELATION = -1;
+    private static final int[] NO_NODES = new int[0];
+
+    private final String[] relationNames;
+    private final HashMap<String, Integer> relationIds;
+    private final Adjacency[] forward;
+    private final Adjacency[] reverse;
+
+    // transitive closures already computed, keyed by relation and start node
+    private final ConcurrentHashMap<Long, int[]> closures = new ConcurrentHashMap<>();
+
+    private KGGraph(Builder builder) {
+        int relations = builder.relationNames.size();
+        this.relationNames = builder.relationNames.toArray(new String[relations]);
+        this.relationIds = new HashMap<>(builder.relationIds);
+        this.forward = new Adjacency[relations];
+        this.reverse = new Adjacency[relations];
+        for (int r = 0; r < relations; r++) {
+            Edges edges = builder.edges.get(r);
+            forward[r] = new Adjacency(edges.starts, edges.ends, edges.count);
+            reverse[r] = new Adjacency(edges.ends, edges.starts, edges.count);
+        }
+    }
+
+    // read a node_relation file: back-to-back {"start_id": .., "end_id": .., "relation": ..} objects
+    public static KGGraph load(Path relationFile) throws IOException {
+        Builder builder = new Builder();
+        HashMap<String, String> fields = new HashMap<>();
+        try (JsonObjectStream stream = new JsonObjectStream(
+                new InputStreamReader(Files.newInputStream(relationFile), StandardCharsets.UTF_8))) {
+            while (stream.next(fields)) {
+                String start = fields.get("start_id");
+                String end = fields.get("end_id");
+                String relation = fields.get("relation");
+                if (start == null || end == null || relation == null) {
+                    throw new IOException("Incomplete KG relation: " + fields);
+                }
+                try {
+                    builder.addEdge(Integer.parseInt(start), Integer.parseInt(end), relation);
+                } catch (NumberFormatException e) {
+                    throw new IOException("KG relation with a bad node id: " + fields, e);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // the id of a relation type, or NO_RELATION if the graph has no such edges
+    public int getRelationId(String relation) {
+        Integer id = relationIds.get(relation);
+        return id == null ? NO_RELATION : id;
+    }
+
+    public String getRelationName(int relationId) {
+        return relationNames[relationId];
+    }
+
+    public int getRelationCount() {
+        return relationNames.length;
+    }
+
+    public int getEdgeCount(int relationId) {
+        return relationId == NO_RELATION ? 0 : forward[relationId].targets.length;
+    }
+
+    // end nodes of the relation edges starting at node
+    public int[] getSuccessors(int node, int relationId) {
+        return relationId == NO_RELATION ? NO_NODES : forward[relationId].neighbours(node);
+    }
+
+    // start nodes of the relation edges ending at node
+    public int[] getPredecessors(int node, int relationId) {
+        return relationId == NO_RELATION ? NO_NODES : reverse[relationId].neighbours(node);
+    }
+
+    public void forEachSuccessor(int node, int relationId, IntConsumer consumer) {
+        if (relationId != NO_RELATION) {
+            forward[relationId].forEach(node, consumer);
+        }
+    }
+
+    public void forEachPredecessor(int node, int relationId, IntConsumer consumer) {
+        if (relationId != NO_RELATION) {
+            reverse[relationId].forEach(node, consumer);
+        }
+    }
+
+    // nodes reachable from start by following at most maxDepth relation edges, in BFS order, start excluded
+    public int[] getReachable(int start, int relationId, int maxDepth) {
+        IntList found = new IntList();
+        breadthFirst(start, relationId, maxDepth, node -> {
+            found.add(node);
+            return false;
+        });
+        return found.toArray();
+    }
+
+    // whether any node reachable from start within maxDepth relation edges satisfies the predicate,
+    // e.g. "does any method reachable via this relation have API constraints"
+    public boolean anyReachable(int start, int relationId, int maxDepth, IntPredicate predicate) {
+        return breadthFirst(start, relationId, maxDepth, predicate);
+    }
+
+    // all the nodes reachable from start through relation edges (start excluded unless it is on a cycle), sorted.
+    // Closures are computed once per (start, relation) and then served from a cache
+    public int[] getTransitiveClosure(int start, int relationId) {
+        return relationId == NO_RELATION ? NO_NODES : closure(start, relationId).clone();
+    }
+
+    // whether target can be reached from start through relation edges, answered from the memoized closure
+    public boolean isReachable(int start, int target, int relationId) {
+        return relationId != NO_RELATION && Arrays.binarySearch(closure(start, relationId), target) >= 0;
+    }
+
+    private int[] closure(int start, int relationId) {
+        long key = ((long) relationId << 32) | (start & 0xFFFFFFFFL);
+        int[] closure = closures.get(key);
+        if (closure == null) {
+            IntList found = new IntList();
+            breadthFirst(start, relationId, Integer.MAX_VALUE, node -> {
+                found.add(node);
+                return false;
+            });
+            closure = found.toArray();
+            Arrays.sort(closure);
+            int[] raced = closures.putIfAbsent(key, closure);
+            if (raced != null) {
+                closure = raced;
+            }
+        }
+        return closure;
+    }
+
+    // visit nodes breadth-first until the predicate accepts one (returns true) or the depth bound is hit
+    private boolean breadthFirst(int start, int relationId, int maxDepth, IntPredicate visit) {
+        if (relationId == NO_RELATION || maxDepth <= 0) {
+            return false;
+        }
+        Adjacency adjacency = forward[relationId];
+        IntIntHashMap seen = new IntIntHashMap();
+        IntList queue = new IntList();
+        queue.add(start);
+        int head = 0;
+        int depth = 0;
+        while (head < queue.size && depth < maxDepth) {
+            int levelEnd = queue.size;
+            depth++;
+            for (; head < levelEnd; head++) {
+                int row = adjacency.rows.get(queue.values[head], -1);
+                if (row == -1) {
+                    continue;
+                }
+                for (int i = adjacency.rowStarts[row]; i < adjacency.rowStarts[row + 1]; i++) {
+                    int next = adjacency.targets[i];
+                    if (seen.containsKey(next)) {
+                        continue;
+                    }
+                    seen.put(next, depth);
+                    if (visit.test(next)) {
+                        return true;
+                    }
+                    queue.add(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    /*
+    CSR adjacency of one relation direction: the neighbours of row r are targets[rowStarts[r] .. rowStarts[r + 1])
+     */
+    private static final class Adjacency {
+
+        final IntIntHashMap rows = new IntIntHashMap();
+        final int[] rowStarts;
+        final int[] targets;
+
+        Adjacency(int[] from, int[] to, int count) {
+            long[] order = new long[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = ((long) from[i] << 32) | i;
+            }
+            Arrays.sort(order);
+
+            targets = new int[count];
+            int[] starts = new int[count + 1];
+            int rowCount = 0;
+            for (int i = 0; i < count; i++) {
+                int edge = (int) order[i];
+                if (i == 0 || from[(int) order[i - 1]] != from[edge]) {
+                    rows.put(from[edge], rowCount);
+                    starts[rowCount++] = i;
+                }
+                targets[i] = to[edge];
+            }
+            starts[rowCount] = count;
+            rowStarts = Arrays.copyOf(starts, rowCount + 1);
+        }
+
+        int[] neighbours(int node) {
+            int row = rows.get(node, -1);
+            return row == -1 ? NO_NODES : Arrays.copyOfRange(targets, rowStarts[row], rowStarts[row + 1]);
+        }
+
+        void forEach(int node, IntConsumer consumer) {
+            int row = rows.get(node, -1);
+            if (row == -1) {
+                return;
+            }
+            for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+                consumer.accept(targets[i]);
+            }
+        }
+    }
+
+    /*
+    Growable int array
+     */
+    private static final class IntList {
+
+        int[] values = new int[16];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /*
+    The edges of one relation type while the graph is being built
+     */
+    private static final class Edges {
+
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int count = 0;
+
+        void add(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+    }
+
+    /*
+    Collects the typed edges of a KGGraph
+     */
+    public static class Builder {
+
+        private final ArrayList<String> relationNames = new ArrayList<>();
+        private final HashMap<String, Integer> relationIds = new HashMap<>();
+        private final ArrayList<Edges> edges = new ArrayList<>();
+
+        public Builder addEdge(int startId, int endId, String relation) {
+            Integer id = relationIds.get(relation);
+            if (id == null) {
+                id = relationNames.size();
+                relationIds.put(relation, id);
+                relationNames.add(relation);
+                edges.add(new Edges());
+            }
+            edges.get(id).add(startId, endId);
+            return this;
+        }
+
+        public KGGraph build() {
+            return new KGGraph(this);
+        }
+    }
+}
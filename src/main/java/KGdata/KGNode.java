@@ -0,0 +1,41 @@
+package KGdata;
+
+/*
+This class holds the essential information of a KG node record (field, constructor or parameter node)
+ */
+
+public class KGNode {
+
+    int idx;
+    String name, type, desc;
+
+    public KGNode(int idx, String name, String type, String desc) {
+        this.idx = idx;
+        this.name = name;
+        this.type = type;
+        this.desc = desc;
+    }
+
+    public int getIdx() {
+        return this.idx;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    // "field" or "constructor", parameter nodes have no type
+    public String getType() {
+        return this.type;
+    }
+
+    // the "Desc" of field/constructor nodes or the "Dec" of parameter nodes
+    public String getDesc() {
+        return this.desc;
+    }
+
+    @Override
+    public String toString() {
+        return idx + " " + name + " (" + type + "): " + desc;
+    }
+}
@@ -0,0 +1,287 @@
+package KGdata;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+/*
+This class is an in-memory index of the KG nodes keyed by idx.
+Nodes are stored column-wise in primitive arrays and found through an int-keyed open-addressing map,
+descriptions are kept as UTF-8 in one byte array and only decoded when asked for.
+The method -> parameters relation is stored CSR-style: the parameters of a method are a contiguous run of one int array.
+The node files have no edge records, the relation is derived from their numbering (see addConstructorParameters()),
+so the constructors are the only methods that have parameters.
+Build it with a Builder (or load()/fromSnapshot()); once built it is immutable
+ */
+
+public class KGNodeIndex {
+
+    private static final int MISSING = -1;
+    private static final int[] NO_PARAMETERS = new int[0];
+
+    private final int size;
+    private final int[] idx;
+    private final byte[] kind;
+    private final String[] name;
+    private final String[] type;
+    private final byte[] descBytes;
+    private final int[] descEnds;
+    private final IntIntHashMap positions;
+
+    // CSR relation method idx -> parameter idxs: the parameters of the row r are parameterIdx[rowStarts[r] .. rowStarts[r + 1])
+    private final IntIntHashMap parameterRows;
+    private final int[] rowStarts;
+    private final int[] parameterIdx;
+
+    private KGNodeIndex(Builder builder) {
+        this.size = builder.size;
+        this.idx = Arrays.copyOf(builder.idx, size);
+        this.kind = Arrays.copyOf(builder.kind, size);
+        this.name = Arrays.copyOf(builder.name, size);
+        this.type = Arrays.copyOf(builder.type, size);
+        this.descBytes = Arrays.copyOf(builder.descBytes, builder.descLength);
+        this.descEnds = Arrays.copyOf(builder.descEnds, size);
+
+        this.positions = new IntIntHashMap(size);
+        for (int i = 0; i < size; i++) {
+            positions.put(idx[i], i);
+        }
+
+        // group the parameter edges by method, keeping the order in which they were added
+        int edges = builder.edgeCount;
+        long[] order = new long[edges];
+        for (int i = 0; i < edges; i++) {
+            order[i] = ((long) builder.edgeMethods[i] << 32) | i;
+        }
+        Arrays.sort(order);
+
+        this.parameterIdx = new int[edges];
+        this.parameterRows = new IntIntHashMap();
+        int[] starts = new int[Math.max(edges, 1) + 1];
+        int rows = 0;
+        for (int i = 0; i < edges; i++) {
+            int edge = (int) order[i];
+            int method = builder.edgeMethods[edge];
+            if (i == 0 || builder.edgeMethods[(int) order[i - 1]] != method) {
+                parameterRows.put(method, rows);
+                starts[rows++] = i;
+            }
+            parameterIdx[i] = builder.edgeParameters[edge];
+        }
+        starts[rows] = edges;
+        this.rowStarts = Arrays.copyOf(starts, rows + 1);
+    }
+
+    // read the three KG node files of a KG data directory
+    public static KGNodeIndex load(Path dataDirectory) throws IOException {
+        Builder builder = new Builder();
+        for (KGNodeKind kind : KGNodeKind.values()) {
+            KGNodeReader.read(dataDirectory.resolve(kind.getFileName()), node -> builder.addNode(kind, node));
+        }
+        return builder.addConstructorParameters().build();
+    }
+
+    // copy all the nodes of a KG snapshot
+    public static KGNodeIndex fromSnapshot(KGSnapshot snapshot) {
+        Builder builder = new Builder();
+        for (KGNodeKind kind : KGNodeKind.values()) {
+            for (int i = 0; i < snapshot.getNodeCount(kind); i++) {
+                builder.addNode(kind, snapshot.getNodeAt(kind, i));
+            }
+        }
+        return builder.addConstructorParameters().build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int nodeIdx) {
+        return positions.containsKey(nodeIdx);
+    }
+
+    // the kind of the node, or null if there is no such node
+    public KGNodeKind getKind(int nodeIdx) {
+        int position = positions.get(nodeIdx, MISSING);
+        return position == MISSING ? null : KGNodeKind.values()[kind[position]];
+    }
+
+    public String getName(int nodeIdx) {
+        int position = positions.get(nodeIdx, MISSING);
+        return position == MISSING ? null : name[position];
+    }
+
+    public String getType(int nodeIdx) {
+        int position = positions.get(nodeIdx, MISSING);
+        return position == MISSING ? null : type[position];
+    }
+
+    public String getDesc(int nodeIdx) {
+        int position = positions.get(nodeIdx, MISSING);
+        return position == MISSING ? null : desc(position);
+    }
+
+    // the whole node record, or null if there is no such node
+    public KGNode getNode(int nodeIdx) {
+        int position = positions.get(nodeIdx, MISSING);
+        if (position == MISSING) {
+            return null;
+        }
+        return new KGNode(idx[position], name[position], type[position], desc(position));
+    }
+
+    public int getParameterCount(int methodIdx) {
+        int row = parameterRows.get(methodIdx, MISSING);
+        return row == MISSING ? 0 : rowStarts[row + 1] - rowStarts[row];
+    }
+
+    // the parameter idxs of a method, in the order they were added
+    public int[] getParameters(int methodIdx) {
+        int row = parameterRows.get(methodIdx, MISSING);
+        return row == MISSING ? NO_PARAMETERS : Arrays.copyOfRange(parameterIdx, rowStarts[row], rowStarts[row + 1]);
+    }
+
+    // visit the parameter idxs of a method without allocating
+    public void forEachParameter(int methodIdx, IntConsumer consumer) {
+        int row = parameterRows.get(methodIdx, MISSING);
+        if (row == MISSING) {
+            return;
+        }
+        for (int i = rowStarts[row]; i < rowStarts[row + 1]; i++) {
+            consumer.accept(parameterIdx[i]);
+        }
+    }
+
+    // approximate heap footprint in bytes, names and types are interned and shared so they are not counted
+    public long estimateBytes() {
+        return 4L * idx.length + kind.length + 4L * name.length + 4L * type.length
+                + descBytes.length + 4L * descEnds.length
+                + positions.estimateBytes() + parameterRows.estimateBytes()
+                + 4L * rowStarts.length + 4L * parameterIdx.length;
+    }
+
+    private String desc(int position) {
+        int start = position == 0 ? 0 : descEnds[position - 1];
+        int end = descEnds[position];
+        return new String(descBytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /*
+    Collects the node records and parameter edges of a KGNodeIndex
+     */
+    public static class Builder {
+
+        private int size = 0;
+        private int[] idx = new int[1024];
+        private byte[] kind = new byte[1024];
+        private String[] name = new String[1024];
+        private String[] type = new String[1024];
+        private int[] descEnds = new int[1024];
+        private byte[] descBytes = new byte[1 << 16];
+        private int descLength = 0;
+
+        private int edgeCount = 0;
+        private int[] edgeMethods = new int[256];
+        private int[] edgeParameters = new int[256];
+
+        // names repeat a lot (parameters are mostly "l", "e", ...), keep one copy of each
+        private final HashMap<String, String> strings = new HashMap<>();
+
+        public Builder addNode(KGNodeKind nodeKind, KGNode node) {
+            if (size == idx.length) {
+                int capacity = size * 2;
+                idx = Arrays.copyOf(idx, capacity);
+                kind = Arrays.copyOf(kind, capacity);
+                name = Arrays.copyOf(name, capacity);
+                type = Arrays.copyOf(type, capacity);
+                descEnds = Arrays.copyOf(descEnds, capacity);
+            }
+            byte[] desc = node.getDesc() == null ? new byte[0] : node.getDesc().getBytes(StandardCharsets.UTF_8);
+            if (descLength + desc.length > descBytes.length) {
+                descBytes = Arrays.copyOf(descBytes, Math.max(descBytes.length * 2, descLength + desc.length));
+            }
+            System.arraycopy(desc, 0, descBytes, descLength, desc.length);
+            descLength += desc.length;
+
+            idx[size] = node.getIdx();
+            kind[size] = (byte) nodeKind.ordinal();
+            name[size] = intern(node.getName());
+            type[size] = intern(node.getType());
+            descEnds[size] = descLength;
+            size++;
+            return this;
+        }
+
+        // record that the parameter node parameterIdx belongs to the method node methodIdx
+        public Builder addParameter(int methodIdx, int parameterIdx) {
+            if (edgeCount == edgeMethods.length) {
+                edgeMethods = Arrays.copyOf(edgeMethods, edgeCount * 2);
+                edgeParameters = Arrays.copyOf(edgeParameters, edgeCount * 2);
+            }
+            edgeMethods[edgeCount] = methodIdx;
+            edgeParameters[edgeCount] = parameterIdx;
+            edgeCount++;
+            return this;
+        }
+
+        // add the parameters of every constructor added so far: the KG numbers the parameter nodes of a constructor
+        // right after it, one per type of its signature, e.g. Translator(java.lang.Object) 206 has the parameter 207
+        // the parameters of some constructors are not documented, they have no parameter nodes and get no edges
+        public Builder addConstructorParameters() {
+            IntIntHashMap kinds = new IntIntHashMap(size);
+            for (int i = 0; i < size; i++) {
+                kinds.put(idx[i], kind[i]);
+            }
+            int parameterKind = KGNodeKind.PARAMETER.ordinal();
+            for (int i = 0; i < size; i++) {
+                if (kind[i] != KGNodeKind.CONSTRUCTOR.ordinal()) {
+                    continue;
+                }
+                int count = countParameters(name[i]);
+                for (int p = 1; p <= count && kinds.get(idx[i] + p, MISSING) == parameterKind; p++) {
+                    addParameter(idx[i], idx[i] + p);
+                }
+            }
+            return this;
+        }
+
+        public KGNodeIndex build() {
+            return new KGNodeIndex(this);
+        }
+
+        // the number of parameter types in a signature such as Foo(java.lang.String,java.util.Map<K,V>)
+        private static int countParameters(String signature) {
+            int open = signature == null ? -1 : signature.indexOf('(');
+            int close = signature == null ? -1 : signature.lastIndexOf(')');
+            if (open < 0 || close <= open + 1) {
+                return 0;
+            }
+            int count = 1;
+            int depth = 0;
+            for (int i = open + 1; i < close; i++) {
+                char c = signature.charAt(i);
+                if (c == '<') {
+                    depth++;
+                }
+                else if (c == '>') {
+                    depth--;
+                }
+                else if (c == ',' && depth == 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private String intern(String s) {
+            if (s == null) {
+                return null;
+            }
+            String existing = strings.putIfAbsent(s, s);
+            return existing == null ? s : existing;
+        }
+    }
+}
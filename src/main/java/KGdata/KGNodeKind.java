@@ -0,0 +1,21 @@
+package KGdata;
+
+/*
+The kinds of KG node files, in the order their sections appear in a KG snapshot
+ */
+
+public enum KGNodeKind {
+    FIELD("fieldNode.json"),
+    CONSTRUCTOR("constructorNode.json"),
+    PARAMETER("parametersNode.json");
+
+    private final String fileName;
+
+    KGNodeKind(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFileName() {
+        return this.fileName;
+    }
+}
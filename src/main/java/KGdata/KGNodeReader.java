@@ -0,0 +1,103 @@
+package KGdata;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/*
+This class streams the KG node records of fieldNode.json, constructorNode.json and parametersNode.json
+one at a time, so that a file of any size is read in constant memory.
+Use it as an iterator (and close it), or hand a callback to read()
+ */
+
+public class KGNodeReader implements Iterator<KGNode>, Closeable {
+
+    private final JsonObjectStream stream;
+    private final HashMap<String, String> fields = new HashMap<>();
+    private KGNode nextNode;
+    private boolean done = false;
+
+    public KGNodeReader(Reader reader) {
+        this.stream = new JsonObjectStream(reader);
+    }
+
+    public static KGNodeReader open(Path path) throws IOException {
+        return new KGNodeReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8));
+    }
+
+    // read every node record of the given file and pass it to the callback, returns the number of records
+    public static int read(Path path, Consumer<KGNode> callback) throws IOException {
+        int count = 0;
+        try (KGNodeReader reader = open(path)) {
+            KGNode node;
+            while ((node = reader.nextOrNull()) != null) {
+                callback.accept(node);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // the next node record, or null at the end of the file
+    public KGNode nextOrNull() throws IOException {
+        if (nextNode != null) {
+            KGNode node = nextNode;
+            nextNode = null;
+            return node;
+        }
+        if (done || !stream.next(fields)) {
+            done = true;
+            return null;
+        }
+        return toNode(fields);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextNode == null && !done) {
+            try {
+                nextNode = nextOrNull();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return nextNode != null;
+    }
+
+    @Override
+    public KGNode next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        KGNode node = nextNode;
+        nextNode = null;
+        return node;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    private static KGNode toNode(HashMap<String, String> fields) throws IOException {
+        String idx = fields.get("idx");
+        if (idx == null) {
+            throw new IOException("KG node without idx: " + fields);
+        }
+        String desc = fields.containsKey("Desc") ? fields.get("Desc") : fields.get("Dec");
+        try {
+            return new KGNode(Integer.parseInt(idx), fields.get("node_name"), fields.get("type"), desc);
+        } catch (NumberFormatException e) {
+            throw new IOException("KG node with a bad idx: " + idx, e);
+        }
+    }
+}
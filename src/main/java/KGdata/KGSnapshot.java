@@ -0,0 +1,201 @@
+package KGdata;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+This class gives read-only access to a binary KG snapshot written by KGSnapshotWriter.
+The file is memory-mapped, so opening it costs almost nothing and the pages are shared by every IDE instance
+that maps the same snapshot. Nothing is decoded until it is asked for.
+
+Layout (big-endian ints):
+    header      magic, version, string table offset, string count,
+                (offset, count) of the FIELD, CONSTRUCTOR and PARAMETER node sections, (offset, count) of the constraints
+    node        idx, name, type, desc                    one fixed-width record per node, sorted by idx
+    constraint  start, end, check, violation, desc,      one fixed-width record per constraint, in file order
+                start class, end class
+    strings     end offset of each string, then the UTF-8 bytes of all strings
+All the names and descriptions in records are ids into the string table, -1 stands for a missing value
+ */
+
+public class KGSnapshot implements Closeable {
+
+    public static final int MAGIC = 0x41504B47; // "APKG"
+    public static final int VERSION = 2;
+    public static final int NO_STRING = -1;
+
+    static final int HEADER_SIZE = 4 * (4 + 2 * KGNodeKind.values().length + 2);
+    static final int NODE_RECORD_SIZE = 4 * 4;
+    static final int CONSTRAINT_RECORD_SIZE = 4 * 7;
+
+    private static final int CONSTRAINT_START = 0;
+    private static final int CONSTRAINT_END = 1;
+    private static final int CONSTRAINT_CHECK = 2;
+    private static final int CONSTRAINT_VIOLATION = 3;
+    private static final int CONSTRAINT_DESC = 4;
+    private static final int CONSTRAINT_START_CLASS = 5;
+    private static final int CONSTRAINT_END_CLASS = 6;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private final int stringCount;
+    private final int stringEndsOffset;
+    private final int stringDataOffset;
+    private final int[] nodeOffsets = new int[KGNodeKind.values().length];
+    private final int[] nodeCounts = new int[KGNodeKind.values().length];
+    private final int constraintOffset;
+    private final int constraintCount;
+
+    private KGSnapshot(FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a KG snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported KG snapshot version " + version + ", expected " + VERSION);
+        }
+        stringEndsOffset = buffer.getInt(8);
+        stringCount = buffer.getInt(12);
+        stringDataOffset = stringEndsOffset + 4 * stringCount;
+        int position = 16;
+        for (int i = 0; i < nodeOffsets.length; i++) {
+            nodeOffsets[i] = buffer.getInt(position);
+            nodeCounts[i] = buffer.getInt(position + 4);
+            position += 8;
+        }
+        constraintOffset = buffer.getInt(position);
+        constraintCount = buffer.getInt(position + 4);
+    }
+
+    // map a snapshot file read-only
+    public static KGSnapshot open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new KGSnapshot(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getNodeCount(KGNodeKind kind) {
+        return nodeCounts[kind.ordinal()];
+    }
+
+    // position of the node with the given idx in its section, or -1 if there is none
+    public int findNode(KGNodeKind kind, int idx) {
+        int base = nodeOffsets[kind.ordinal()];
+        int low = 0;
+        int high = nodeCounts[kind.ordinal()] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midIdx = buffer.getInt(base + mid * NODE_RECORD_SIZE);
+            if (midIdx < idx) {
+                low = mid + 1;
+            }
+            else if (midIdx > idx) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // the node with the given idx, or null if there is none
+    public KGNode getNode(KGNodeKind kind, int idx) {
+        int position = findNode(kind, idx);
+        return position < 0 ? null : getNodeAt(kind, position);
+    }
+
+    // the node at the given position of its section (positions are in idx order)
+    public KGNode getNodeAt(KGNodeKind kind, int position) {
+        int record = nodeOffsets[kind.ordinal()] + position * NODE_RECORD_SIZE;
+        return new KGNode(buffer.getInt(record),
+                getString(buffer.getInt(record + 4)),
+                getString(buffer.getInt(record + 8)),
+                getString(buffer.getInt(record + 12)));
+    }
+
+    public int getIdxAt(KGNodeKind kind, int position) {
+        return buffer.getInt(nodeOffsets[kind.ordinal()] + position * NODE_RECORD_SIZE);
+    }
+
+    public int getConstraintCount() {
+        return constraintCount;
+    }
+
+    public String getConstraintStart(int i) {
+        return getConstraintString(i, CONSTRAINT_START);
+    }
+
+    public String getConstraintEnd(int i) {
+        return getConstraintString(i, CONSTRAINT_END);
+    }
+
+    public String getConstraintCheck(int i) {
+        return getConstraintString(i, CONSTRAINT_CHECK);
+    }
+
+    public String getConstraintViolation(int i) {
+        return getConstraintString(i, CONSTRAINT_VIOLATION);
+    }
+
+    public String getConstraintDesc(int i) {
+        return getConstraintString(i, CONSTRAINT_DESC);
+    }
+
+    public String getConstraintStartClass(int i) {
+        return getConstraintString(i, CONSTRAINT_START_CLASS);
+    }
+
+    public String getConstraintEndClass(int i) {
+        return getConstraintString(i, CONSTRAINT_END_CLASS);
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    // decode a string of the string table, -1 gives null
+    public String getString(int id) {
+        if (id == NO_STRING) {
+            return null;
+        }
+        if (id < 0 || id >= stringCount) {
+            throw new IndexOutOfBoundsException("string " + id + " of " + stringCount);
+        }
+        int start = id == 0 ? 0 : buffer.getInt(stringEndsOffset + 4 * (id - 1));
+        int end = buffer.getInt(stringEndsOffset + 4 * id);
+        byte[] bytes = new byte[end - start];
+        // duplicate so that concurrent readers do not share a position
+        ByteBuffer view = buffer.duplicate();
+        view.position(stringDataOffset + start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the mapping itself is released by the garbage collector
+        channel.close();
+    }
+
+    private String getConstraintString(int i, int field) {
+        if (i < 0 || i >= constraintCount) {
+            throw new IndexOutOfBoundsException("constraint " + i + " of " + constraintCount);
+        }
+        return getString(buffer.getInt(constraintOffset + i * CONSTRAINT_RECORD_SIZE + 4 * field));
+    }
+}
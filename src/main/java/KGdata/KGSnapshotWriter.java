@@ -0,0 +1,145 @@
+package KGdata;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+This class compiles the KG node files and constraint.json into a binary KG snapshot (see KGSnapshot for the layout).
+It is run at build time by the compileKGSnapshot gradle task:
+    KGSnapshotWriter <KG data directory> <constraint.json> <output snapshot>
+ */
+
+public class KGSnapshotWriter {
+
+    private final HashMap<String, Integer> stringIds = new HashMap<>();
+    private final ArrayList<byte[]> strings = new ArrayList<>();
+
+    private final List<List<int[]>> nodes = new ArrayList<>();
+    private final ArrayList<int[]> constraints = new ArrayList<>();
+
+    public KGSnapshotWriter() {
+        for (int i = 0; i < KGNodeKind.values().length; i++) {
+            nodes.add(new ArrayList<>());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("usage: KGSnapshotWriter <KG data directory> <constraint.json> <output snapshot>");
+            System.exit(2);
+        }
+        KGSnapshotWriter writer = new KGSnapshotWriter();
+        Path dataDirectory = Paths.get(args[0]);
+        for (KGNodeKind kind : KGNodeKind.values()) {
+            writer.addNodes(kind, dataDirectory.resolve(kind.getFileName()));
+        }
+        writer.addConstraints(Paths.get(args[1]));
+        writer.write(Paths.get(args[2]));
+        System.out.println("KG snapshot written to " + args[2] + " (" + writer.strings.size() + " strings)");
+    }
+
+    public void addNodes(KGNodeKind kind, Path file) throws IOException {
+        List<int[]> records = nodes.get(kind.ordinal());
+        KGNodeReader.read(file, node -> records.add(new int[]{
+                node.getIdx(), intern(node.getName()), intern(node.getType()), intern(node.getDesc())}));
+    }
+
+    public void addConstraints(Path constraintFile) throws IOException {
+        JSONObject jobj = JSON.parseObject(new String(Files.readAllBytes(constraintFile), StandardCharsets.UTF_8));
+        JSONArray entries = jobj.getJSONArray("constraint");
+        for (int i = 0; i < entries.size(); i++) {
+            JSONObject entry = entries.getJSONObject(i);
+            JSONObject constraint = entry.getJSONObject("constraint");
+            constraints.add(new int[]{
+                    intern(entry.getString("start")),
+                    intern(entry.getString("end")),
+                    intern(constraint.getString("check")),
+                    intern(constraint.getString("Violation")),
+                    intern(constraint.getString("Desc")),
+                    intern(entry.getString("startClass")),
+                    intern(entry.getString("endClass"))});
+        }
+    }
+
+    public void write(Path output) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        for (List<int[]> records : nodes) {
+            records.sort((a, b) -> Integer.compare(a[0], b[0]));
+        }
+
+        // section offsets are only known once the sections before them are laid out
+        int offset = KGSnapshot.HEADER_SIZE;
+        int[] nodeOffsets = new int[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            nodeOffsets[i] = offset;
+            offset += nodes.get(i).size() * KGSnapshot.NODE_RECORD_SIZE;
+        }
+        int constraintOffset = offset;
+        offset += constraints.size() * KGSnapshot.CONSTRAINT_RECORD_SIZE;
+        int stringOffset = offset;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16))) {
+            out.writeInt(KGSnapshot.MAGIC);
+            out.writeInt(KGSnapshot.VERSION);
+            out.writeInt(stringOffset);
+            out.writeInt(strings.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                out.writeInt(nodeOffsets[i]);
+                out.writeInt(nodes.get(i).size());
+            }
+            out.writeInt(constraintOffset);
+            out.writeInt(constraints.size());
+
+            for (List<int[]> records : nodes) {
+                writeRecords(out, records);
+            }
+            writeRecords(out, constraints);
+
+            // string table: end offset of every string, then the UTF-8 bytes of all strings
+            int end = 0;
+            for (byte[] string : strings) {
+                end += string.length;
+                out.writeInt(end);
+            }
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+        }
+    }
+
+    private static void writeRecords(DataOutputStream out, List<int[]> records) throws IOException {
+        for (int[] record : records) {
+            for (int value : record) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    // identical strings are stored once, null is stored as -1
+    private int intern(String s) {
+        if (s == null) {
+            return KGSnapshot.NO_STRING;
+        }
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(s, id);
+            strings.add(s.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+}
@@ -0,0 +1,62 @@
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+
+import java.util.Arrays;
+
+/*
+This class gives the line number of an element without reading the text of its file again.
+The line index of the document of the file is used when the document is in sync with the PSI, otherwise the line start
+offsets of the file are collected once per modification of the file and binary-searched
+ */
+
+public final class LineNumbers {
+
+    private static final Key<CachedValue<int[]>> LINE_STARTS = Key.create("APIKG.LINE_STARTS");
+
+    private LineNumbers() {
+    }
+
+    // get the line number of the code in the inspecting Java file, the first line is 1
+    public static int getLineNumber(PsiElement psiElement) {
+        int offset = psiElement.getTextOffset();
+        PsiFile file = psiElement.getContainingFile();
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(file.getProject());
+        Document document = documentManager.getDocument(file);
+        if (document != null && documentManager.isCommitted(document) && offset <= document.getTextLength()) {
+            return document.getLineNumber(offset) + 1;
+        }
+        return lineOf(getLineStarts(file), offset) + 1;
+    }
+
+    // the offset each line of the file starts at, in increasing order
+    private static int[] getLineStarts(PsiFile file) {
+        return CachedValuesManager.getCachedValue(file, LINE_STARTS,
+                () -> CachedValueProvider.Result.create(collectLineStarts(file.getViewProvider().getContents()), file));
+    }
+
+    private static int[] collectLineStarts(CharSequence text) {
+        int[] lineStarts = new int[16];
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                if (lines == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+                }
+                lineStarts[lines++] = i + 1;
+            }
+        }
+        return Arrays.copyOf(lineStarts, lines);
+    }
+
+    // the 0-based line containing the offset
+    private static int lineOf(int[] lineStarts, int offset) {
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return (index >= 0) ? index : -index - 2;
+    }
+}
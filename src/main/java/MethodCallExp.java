@@ -2,19 +2,26 @@ import com.intellij.psi.PsiElement;
 
 /*
 This class holds the essential information of a methodCall
+The name is split once into its qualifier and simple name, both interned, so that comparing calls
+in the detection loops does not allocate and String.equals succeeds on its identity check
  */
 
 public class MethodCallExp {
 
     PsiElement element;
-    String name, functionBelong;
+    String name, qualifier, simpleName, functionBelong;
     int lineNumber;
 
     public MethodCallExp(PsiElement element, String methodName, int lineNumber, String functionBelong) {
         this.element = element;
         this.name = methodName;
         this.lineNumber = lineNumber;
-        this.functionBelong = functionBelong;
+        this.functionBelong = functionBelong.intern();
+
+        // e.g. panel.add -> panel + add, an unqualified call has an empty qualifier
+        int dot = methodName.lastIndexOf('.');
+        this.qualifier = (dot < 0) ? "" : methodName.substring(0, dot).intern();
+        this.simpleName = methodName.substring(dot + 1).intern();
     }
 
     public PsiElement getElement() {
@@ -25,6 +32,16 @@ public class MethodCallExp {
         return this.name;
     }
 
+    // the name without its qualifier, e.g. add for panel.add
+    public String getSimpleName() {
+        return this.simpleName;
+    }
+
+    // the qualifier of the name, e.g. panel for panel.add
+    public String getQualifier() {
+        return this.qualifier;
+    }
+
     public int getLineNumber() {
         return this.lineNumber;
     }
@@ -0,0 +1,138 @@
+import ASTtriplet.ASTtriplet;
+import ASTtriplet.Relation;
+import ASTtriplet.TripletTable;
+import com.intellij.psi.PsiDeclarationStatement;
+import com.intellij.psi.PsiElement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+This class holds the state of KGInspection while it turns one method into triplets:
+the triplet ID counters, the triplet table being written and the elements a warning is reported on ("bad lines").
+The triplets are written straight into the table; their text form (ASTtriplet) is only built for the debug dump.
+A new context is created for every method, so methods of different files can be analysed at the same time
+ */
+
+class TripletBuilderContext {
+
+    // triplet counting
+    int id = 0;
+    int lowest_root_id = 0;
+    int next_available_id = 0;
+
+    int try_lowest_rootID = 0;
+    int try_next_available_id = 0;
+
+    int if_next_available_id;
+
+    int rootID = -1;
+
+    // the declaration statement being turned into triplets
+    PsiDeclarationStatement declaration;
+
+    // the element a warning on a call is reported on, by the row of the call triplet
+    final HashMap<Integer, PsiElement> bad_lines = new HashMap<>();
+
+    private final TripletTable.Builder table = new TripletTable.Builder();
+    // the text form of every row of the table, null unless the triplets are dumped
+    private final ArrayList<ASTtriplet> dump;
+
+    TripletBuilderContext(boolean dump) {
+        this.dump = dump ? new ArrayList<>() : null;
+    }
+
+    // add a triplet with the given ID, returns its row
+    int triplet(int id) {
+        if (dump != null) {
+            dump.add(new ASTtriplet(id));
+        }
+        return table.add(id);
+    }
+
+    void relation(int row, Relation relation) {
+        table.setRelation(row, relation);
+        if (dump != null) {
+            dump.get(row).third_entity.add("Relation: " + relation.getLabel());
+        }
+    }
+
+    // add the head entity "key: value", or just "key" if value is null
+    void head(int row, String key, String value) {
+        table.addHead(row, key, value);
+        if (dump != null) {
+            dump.get(row).first_entity.add(value == null ? key : key + ": " + value);
+        }
+    }
+
+    // add the head entity "key: triplet_<id>"
+    void headLink(int row, String key, int id) {
+        table.addHead(row, key, null);
+        table.addLink(row, id);
+        if (dump != null) {
+            dump.get(row).first_entity.add(key + ": triplet_" + id);
+        }
+    }
+
+    // add the head entity "key: [triplet_<firstID>, ...]" of count consecutive triplets
+    void headLinks(int row, String key, int firstID, int count) {
+        table.addHead(row, key, null);
+        for (int i = 0; i < count; i++) {
+            table.addLink(row, firstID + i);
+        }
+        if (dump != null) {
+            StringBuilder links = new StringBuilder(key).append(": [");
+            for (int i = 0; i < count; i++) {
+                if (i != 0) {
+                    links.append(", ");
+                }
+                links.append("triplet_").append(firstID + i);
+            }
+            dump.get(row).first_entity.add(links.append(']').toString());
+        }
+    }
+
+    // add the tail entity "key: value", or just "key" if value is null
+    void tail(int row, String key, String value) {
+        table.addTail(row, key, value);
+        if (dump != null) {
+            dump.get(row).second_entity.add(value == null ? key : key + ": " + value);
+        }
+    }
+
+    // add the tail entity "key: triplet_<id>"
+    void tailLink(int row, String key, int id) {
+        table.addTail(row, key, null);
+        table.addLink(row, id);
+        if (dump != null) {
+            dump.get(row).second_entity.add(key + ": triplet_" + id);
+        }
+    }
+
+    // the triplet opens a block made of every triplet added after it so far, e.g. the try block of a try statement
+    void closeScope(int row) {
+        table.closeScope(row);
+    }
+
+    // a warning on the call of the triplet is reported on the element, if it is not null
+    void badLine(int row, PsiElement element) {
+        if (element != null) {
+            bad_lines.put(row, element);
+        }
+    }
+
+    // true if the text form of the triplets is kept for the debug dump
+    boolean isDumping() {
+        return dump != null;
+    }
+
+    // the text form of the triplets in table order, empty unless they are dumped
+    List<ASTtriplet> getDump() {
+        return dump == null ? new ArrayList<>() : dump;
+    }
+
+    TripletTable buildTable() {
+        return table.build();
+    }
+}
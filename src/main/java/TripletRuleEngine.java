@@ -0,0 +1,415 @@
+import ASTtriplet.Relation;
+import ASTtriplet.SymbolTable;
+import ASTtriplet.TripletIndex;
+import ASTtriplet.TripletTable;
+import com.intellij.openapi.diagnostic.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/*
+This class compiles the API constraints of a ConstraintRegistry into rules that are matched against the triplets of a method.
+The triplets are read once, in the order they were built, and every call only looks at the rules that name it,
+so the cost grows with the number of calls and not with the number of constraints.
+
+A constraint check is compiled into one of these rules:
+  follow            - start must be followed by a call to end
+  precede           - end must be preceded by a call to start
+  within try-catch  - start must be called in the try block of a try statement
+  char in String    - the argument of start must occur in the String literal declared before it
+  end==true, ...    - a state check, end must be called before start
+  a<b, ...          - a comparison, each side is a number, int (the literal int argument of start),
+                      length(String) (the length of the String literal) or end (the value returned by end)
+ */
+
+public final class TripletRuleEngine {
+
+    private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.TripletRuleEngine");
+
+    private static final String[] OPERATORS = {"<=", ">=", "==", "!=", "<", ">"};
+
+    private static final String INT_ARGUMENT = "int";
+    private static final String STRING_LENGTH = "length(String)";
+
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    // the engine of the last registry asked for, it is recompiled when the registry is swapped
+    private static volatile TripletRuleEngine cached;
+
+    private final ConstraintRegistry registry;
+    // rules by the method whose call checks them: the end for precede, the start for every other rule
+    private final HashMap<String, Rule[]> byTrigger;
+
+    private TripletRuleEngine(ConstraintRegistry registry) {
+        this.registry = registry;
+        HashMap<String, List<Rule>> triggers = new HashMap<>();
+        for (APIConstraint constraint : registry.getAllConstraints()) {
+            Rule rule = compile(constraint);
+            if (rule == null) {
+                LOG.debug("No triplet rule for constraint " + constraint);
+                continue;
+            }
+            String trigger = (rule.kind == Kind.PRECEDE) ? rule.end : rule.start;
+            triggers.computeIfAbsent(trigger, k -> new ArrayList<>()).add(rule);
+        }
+        this.byTrigger = new HashMap<>();
+        for (Map.Entry<String, List<Rule>> entry : triggers.entrySet()) {
+            byTrigger.put(entry.getKey(), entry.getValue().toArray(NO_RULES));
+        }
+    }
+
+    // the engine for the given registry, compiled on first use
+    public static TripletRuleEngine forRegistry(ConstraintRegistry registry) {
+        TripletRuleEngine engine = cached;
+        if (engine == null || engine.registry != registry) {
+            engine = new TripletRuleEngine(registry);
+            cached = engine;
+        }
+        return engine;
+    }
+
+    // match all the rules against the triplets of one method, in the order the triplets were built
+    public List<Violation> match(TripletIndex index) {
+        TripletTable table = index.getTable();
+        SymbolTable symbols = table.getSymbols();
+        int referenceExp = symbols.lookup(KGInspection.REFERENCE_EXP);
+        int referenceElement = symbols.lookup(KGInspection.REFERENCE_ELEMENT);
+        int methodCallExp = symbols.lookup(KGInspection.METHODCALL_EXPRESSION);
+        int literalExp = symbols.lookup(KGInspection.LITERAL_EXPRESSION);
+        int types = symbols.lookup("Types");
+        int intType = symbols.lookup("[int]");
+
+        // the called method of each head value, split once per symbol
+        String[] names = new String[symbols.size()];
+        State state = new State(index, types, intType);
+        ArrayList<Violation> violations = new ArrayList<>();
+        // follow rules waiting for their end, by that end
+        HashMap<String, List<Violation>> pending = new HashMap<>();
+
+        for (int row = 0; row < table.size(); row++) {
+            Relation relation = table.getRelation(row);
+            if (relation == Relation.TRY_STATEMENT) {
+                // the rows of its try block follow the try statement, the catch sections come after them
+                state.tryEnd = Math.max(state.tryEnd, table.getScopeEnd(row));
+            }
+            else if (relation == Relation.DECLARATION_STATEMENT) {
+                if (literalExp != SymbolTable.NO_SYMBOL && table.getTailKey(row, 0) == literalExp) {
+                    state.literal = getLiteral(table, row);
+                }
+                continue;
+            }
+            else if (relation == Relation.ASSIGNMENT_EXPRESSION) {
+                continue;
+            }
+
+            int key = table.getHeadKey(row);
+            int value = table.getHeadValue(row);
+            if (value == SymbolTable.NO_SYMBOL || (key != referenceExp && key != referenceElement && key != methodCallExp)) {
+                continue;
+            }
+            String name = names[value];
+            if (name == null) {
+                name = names[value] = getMethodName(table.getString(value));
+            }
+
+            // a call to the end of a follow rule fulfils every earlier call to its start
+            pending.remove(name);
+            for (Rule rule : byTrigger.getOrDefault(name, NO_RULES)) {
+                if (rule.kind == Kind.FOLLOW) {
+                    pending.computeIfAbsent(rule.end, k -> new ArrayList<>()).add(new Violation(row, table.getString(value), rule));
+                }
+                else if (!rule.holds(state, row, name)) {
+                    violations.add(new Violation(row, table.getString(value), rule));
+                }
+            }
+            state.called.add(name);
+            Integer result = state.evaluate(name, row);
+            if (result != null) {
+                state.results.put(name, result);
+            }
+        }
+        for (List<Violation> unfulfilled : pending.values()) {
+            violations.addAll(unfulfilled);
+        }
+        return violations;
+    }
+
+    // "panel.add" -> "add", "iterator.hasNext()" -> "hasNext", "FileReader" -> "FileReader"
+    static String getMethodName(String reference) {
+        int parenthesis = reference.indexOf('(');
+        if (parenthesis >= 0) {
+            reference = reference.substring(0, parenthesis);
+        }
+        return reference.substring(reference.lastIndexOf('.') + 1).trim();
+    }
+
+    // the first argument of a call triplet, without brackets, quotes and spaces
+    private static String getFirstArgument(TripletTable table, int row) {
+        String argument = table.getString(table.getTailValue(row, 0));
+        if (argument == null) {
+            return "";
+        }
+        argument = argument.split(",", 2)[0];
+        argument = argument.replace(" ", "");
+        argument = argument.replace("[", "");
+        argument = argument.replace("]", "");
+        argument = argument.replace("\'", "");
+        return argument;
+    }
+
+    // the literal a declaration triplet is initialised with, without quotes and spaces
+    private static String getLiteral(TripletTable table, int row) {
+        String literal = table.getString(table.getTailValue(row, 0));
+        if (literal == null) {
+            return "";
+        }
+        literal = literal.replace(" ", "");
+        literal = literal.replace("\"", "");
+        return literal;
+    }
+
+    private static Rule compile(APIConstraint constraint) {
+        String check = constraint.getCheck();
+        if (check == null || constraint.getStart() == null) {
+            return null;
+        }
+        check = check.trim();
+        if (check.equals("follow") || check.equals("precede")) {
+            if (constraint.getEnd() == null) {
+                return null;
+            }
+            return new Rule(check.equals("follow") ? Kind.FOLLOW : Kind.PRECEDE, constraint, null, null, null);
+        }
+        if (check.equals("within try-catch")) {
+            return new Rule(Kind.WITHIN_TRY, constraint, null, null, null);
+        }
+        if (check.equals("char in String")) {
+            return new Rule(Kind.CHAR_IN_STRING, constraint, null, null, null);
+        }
+        for (String operator : OPERATORS) {
+            int at = check.indexOf(operator);
+            if (at < 0) {
+                continue;
+            }
+            String left = check.substring(0, at).trim();
+            String right = check.substring(at + operator.length()).trim();
+            // a state check such as hasNext==true only asks for the call
+            if (left.equals(constraint.getEnd()) && !isNumber(right)) {
+                return new Rule(Kind.STATE_CHECK, constraint, null, null, null);
+            }
+            if (isOperand(left, constraint) && isOperand(right, constraint)) {
+                return new Rule(Kind.COMPARE, constraint, left, operator, right);
+            }
+            return null;
+        }
+        return null;
+    }
+
+    private static boolean isOperand(String operand, APIConstraint constraint) {
+        return operand.equals(INT_ARGUMENT) || operand.equals(STRING_LENGTH) || operand.equals(constraint.getEnd()) || isNumber(operand);
+    }
+
+    private static boolean isNumber(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static boolean compare(int left, String operator, int right) {
+        switch (operator) {
+            case "<=":
+                return left <= right;
+            case ">=":
+                return left >= right;
+            case "==":
+                return left == right;
+            case "!=":
+                return left != right;
+            case "<":
+                return left < right;
+            default:
+                return left > right;
+        }
+    }
+
+    private enum Kind {
+        FOLLOW, PRECEDE, WITHIN_TRY, CHAR_IN_STRING, STATE_CHECK, COMPARE
+    }
+
+    // what is known about a method at the current triplet
+    private static final class State {
+
+        private final TripletIndex index;
+        private final TripletTable table;
+        private final int types;
+        private final int intType;
+
+        // names of the methods called so far
+        private final HashSet<String> called = new HashSet<>();
+        // the last known value returned by a method, by method name
+        private final HashMap<String, Integer> results = new HashMap<>();
+        // the row after the last try block seen so far, a call before it is within that try block
+        private int tryEnd = 0;
+        // the last String literal declared, null if there is none
+        private String literal;
+
+        State(TripletIndex index, int types, int intType) {
+            this.index = index;
+            this.table = index.getTable();
+            this.types = types;
+            this.intType = intType;
+        }
+
+        // the int literal passed to the call, null if the argument is not an int literal
+        Integer getIntArgument(int row) {
+            if (!table.hasTail(row, 1, types, intType)) {
+                return null;
+            }
+            try {
+                return Integer.parseInt(getFirstArgument(table, row));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        // the value returned by the call, for the calls whose value is known from the triplets (indexOf on a literal)
+        Integer evaluate(String name, int row) {
+            if (name.equals("indexOf") && literal != null) {
+                return literal.indexOf(getFirstArgument(table, row));
+            }
+            return null;
+        }
+
+        // the value of end as it is passed to the call: the nested call of end, or the last result of end
+        Integer getResult(String end, int row) {
+            for (int i = 0; i < table.getLinkCount(row); i++) {
+                for (int linked : index.getRowsWithID(table.getLink(row, i))) {
+                    String reference = table.getString(table.getHeadValue(linked));
+                    if (reference != null && getMethodName(reference).equals(end)) {
+                        return evaluate(end, linked);
+                    }
+                }
+            }
+            if (getIntArgument(row) != null) {
+                return null;
+            }
+            return results.get(end);
+        }
+    }
+
+    // a compiled API constraint
+    static final class Rule {
+
+        private final Kind kind;
+        private final APIConstraint constraint;
+        private final String start;
+        private final String end;
+        private final String left;
+        private final String operator;
+        private final String right;
+        private final String message;
+        // the class declaring the method whose call checks the rule, see byTrigger
+        private final String triggerClass;
+
+        private Rule(Kind kind, APIConstraint constraint, String left, String operator, String right) {
+            this.kind = kind;
+            this.constraint = constraint;
+            this.start = constraint.getStart();
+            this.end = constraint.getEnd();
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+            String violation = constraint.getViolation();
+            this.message = (violation == null) ? constraint.getDesc() : constraint.getDesc() + ";\n if violated, throws " + violation;
+            this.triggerClass = (kind == Kind.PRECEDE) ? constraint.getEndClass() : constraint.getStartClass();
+        }
+
+        public APIConstraint getConstraint() {
+            return this.constraint;
+        }
+
+        public String getMessage() {
+            return this.message;
+        }
+
+        // check the rule at the call of the given row, a rule that cannot be decided holds
+        private boolean holds(State state, int row, String name) {
+            switch (kind) {
+                case PRECEDE:
+                    return state.called.contains(start);
+                case STATE_CHECK:
+                    return state.called.contains(end);
+                case WITHIN_TRY:
+                    return row < state.tryEnd;
+                case CHAR_IN_STRING:
+                    if (state.literal == null) {
+                        return true;
+                    }
+                    return state.literal.contains(getFirstArgument(state.table, row));
+                case COMPARE:
+                    Integer l = operand(state, row, left);
+                    Integer r = operand(state, row, right);
+                    return l == null || r == null || compare(l, operator, r);
+                default:
+                    return true;
+            }
+        }
+
+        private Integer operand(State state, int row, String operand) {
+            if (operand.equals(INT_ARGUMENT)) {
+                return state.getIntArgument(row);
+            }
+            if (operand.equals(STRING_LENGTH)) {
+                return state.literal == null ? null : state.literal.length();
+            }
+            if (operand.equals(end)) {
+                return state.getResult(end, row);
+            }
+            return Integer.parseInt(operand);
+        }
+    }
+
+    // a rule that does not hold at a call
+    public static final class Violation {
+
+        private final int row;
+        private final String reference;
+        private final Rule rule;
+
+        Violation(int row, String reference, Rule rule) {
+            this.row = row;
+            this.reference = reference;
+            this.rule = rule;
+        }
+
+        // the row of the call in the triplet table
+        public int getRow() {
+            return this.row;
+        }
+
+        // the reference of the call, e.g. panel.add
+        public String getReference() {
+            return this.reference;
+        }
+
+        public APIConstraint getConstraint() {
+            return rule.getConstraint();
+        }
+
+        public String getMessage() {
+            return rule.getMessage();
+        }
+
+        // the class that must declare the call for the violation to apply, null if any call of that name does
+        // triplets only know names, so the caller checks this against the resolved call
+        public String getTriggerClass() {
+            return rule.triggerClass;
+        }
+    }
+}